@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A minimal benchmark harness for the benchmarks in this folder, with no dependency
+ * outside the JDK, as a fallback for the JMH benchmarks of the {@code jmh} module.
+ * Each task is warmed up first so that the JIT has compiled it, then run repeatedly
+ * over several timed rounds; the best round is reported as time per operation and
+ * operations per second. Where the JVM supports it, the bytes allocated per
+ * operation by the benchmark thread are reported as well.
+ * @author Nathaniel
+ *
+ */
+
+final class Bench {
+
+	/**
+	 * A piece of work to time. It returns a value so that the JIT cannot
+	 * remove it as dead code.
+	 */
+	interface Task {
+		long run();
+	}
+
+	private static final long WARMUP_NANOS = Long.getLong("bench.warmupMillis", 300) * 1000000L;
+	private static final long ROUND_NANOS = Long.getLong("bench.roundMillis", 20) * 1000000L;
+	private static final int MEASURE_ROUNDS = Integer.getInteger("bench.rounds", 10);
+
+	private static final com.sun.management.ThreadMXBean ALLOCATION;
+
+	static{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocation = null;
+		if(bean instanceof com.sun.management.ThreadMXBean){
+			allocation = (com.sun.management.ThreadMXBean) bean;
+			if(!allocation.isThreadAllocatedMemorySupported()){
+				allocation = null;
+			}
+			else{
+				allocation.setThreadAllocatedMemoryEnabled(true);
+			}
+		}
+		ALLOCATION = allocation;
+	}
+
+	static volatile long sink;
+
+	/**
+	 * Time a task and print the cost per operation
+	 * @param name The name printed in front of the result
+	 * @param ops The number of operations (e.g. symbols) done by one run of the task
+	 * @param task The task to time
+	 * @return The best time per operation in nanoseconds
+	 */
+	static double time(String name, long ops, Task task){
+		long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+		while(System.nanoTime() < warmupEnd){
+			sink += task.run();
+		}
+		double perOp = Double.MAX_VALUE;
+		long totalRuns = 0;
+		long allocated = allocatedBytes();
+		for(int i = 0; i < MEASURE_ROUNDS; ++i){
+			long runs = 0;
+			long start = System.nanoTime();
+			long elapsed;
+			do{
+				sink += task.run();
+				++runs;
+				elapsed = System.nanoTime() - start;
+			}
+			while(elapsed < ROUND_NANOS);
+			perOp = Math.min(perOp, (double) elapsed / runs / ops);
+			totalRuns += runs;
+		}
+		allocated = allocatedBytes() - allocated;
+		String bytes = ALLOCATION == null ? "n/a" : String.format("%.1f", (double) allocated / totalRuns / ops);
+		System.out.printf("%-48s %12.3f ns/op %14.0f ops/s %10s B/op%n", name, perOp, 1e9 / perOp, bytes);
+		return perOp;
+	}
+
+	private static long allocatedBytes(){
+		return ALLOCATION == null ? 0 : ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Read a comma-separated list of integers from the command line arguments, given
+	 * as {@code name=1,2,3}
+	 * @param args The command line arguments
+	 * @param name The name of the parameter
+	 * @param defaults The values used if the parameter is not given
+	 * @return The values of the parameter
+	 */
+	static int[] param(String[] args, String name, int... defaults){
+		for(String arg : args){
+			if(arg.startsWith(name + "=")){
+				String[] parts = arg.substring(name.length() + 1).split(",");
+				int[] values = new int[parts.length];
+				for(int i = 0; i < parts.length; ++i){
+					values[i] = Integer.parseInt(parts[i].trim());
+				}
+				return values;
+			}
+		}
+		return defaults;
+	}
+
+	private Bench(){
+
+	}
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The baseline benchmark suite: the {@code DiscreteMath} primitives and every
+ * built-in {@code Crypto} through {@code Encoding.encrypt}. It is parameterized from
+ * the command line, e.g.
+ * <pre>
+ * java -cp bin crypto.CryptoBenchmark length=16,1024,65536 divisor=26,128 keySize=4,32 bits=31,62
+ * </pre>
+ * {@code length} is the message length, {@code divisor} the "n" of the classical
+ * ciphers, {@code keySize} the length of the Vigenere key and {@code bits} the size of
+ * the modulus used for the {@code DiscreteMath} benchmarks.
+ * @author Nathaniel
+ *
+ */
+
+public class CryptoBenchmark {
+
+	private static final int SAMPLES = 1 << 10;
+
+	private static Encoding encoding(int divisor){
+		if(divisor == 26){
+			return Encoding.DEFAULT;
+		}
+		if(divisor == 128){
+			return Encoding.ASCII;
+		}
+		Map<Character, Integer> map = new HashMap<Character, Integer>();
+		for(int i = 0; i < divisor; ++i){
+			map.put((char) (i + 0x100), i);
+		}
+		return new Encoding(map);
+	}
+
+	private static int coprime(int from, long n){
+		int a = from;
+		while(DiscreteMath.gcd(a, n) != 1){
+			++a;
+		}
+		return a;
+	}
+
+	private static long[] rsaKey(int divisor){
+		long bestP = 0;
+		long bestQ = 0;
+		for(long p = 2; p * p < divisor; ++p){
+			if(!isSmallPrime(p)){
+				continue;
+			}
+			for(long q = p + 1; p * q <= divisor; ++q){
+				if(isSmallPrime(q) && p * q > bestP * bestQ){
+					bestP = p;
+					bestQ = q;
+				}
+			}
+		}
+		if(bestP == 0){
+			return null;
+		}
+		return new long[] {bestP, bestQ, coprime(3, (bestP - 1) * (bestQ - 1))};
+	}
+
+	private static boolean isSmallPrime(long v){
+		for(long d = 2; d * d <= v; ++d){
+			if(v % d == 0){
+				return false;
+			}
+		}
+		return v >= 2;
+	}
+
+	private static void cipher(String name, final Encoding encoding, final String message, final Crypto crypto){
+		Bench.time(name, message.length(), new Bench.Task() {
+			@Override
+			public long run() {
+				return encoding.encrypt(message, crypto).charAt(0);
+			}
+		});
+	}
+
+	private static void ciphers(int length, final int divisor, int[] keySizes, Random random){
+		final Encoding encoding = encoding(divisor);
+		char[] chars = new char[length];
+		for(int i = 0; i < length; ++i){
+			chars[i] = encoding.encode(random.nextInt(divisor));
+		}
+		final String message = new String(chars);
+		final int[] pad = new int[length];
+		for(int i = 0; i < length; ++i){
+			pad[i] = random.nextInt(divisor);
+		}
+		String suffix = " len=" + length + " n=" + divisor;
+		cipher("caesar" + suffix, encoding, message, CryptoFactory.caesar(5, divisor));
+		cipher("affine" + suffix, encoding, message, CryptoFactory.affine(coprime(5, divisor), 7, divisor));
+		for(int keySize : keySizes){
+			int[] key = new int[keySize];
+			for(int i = 0; i < keySize; ++i){
+				key[i] = random.nextInt(divisor);
+			}
+			cipher("vigenere" + suffix + " key=" + keySize, encoding, message, CryptoFactory.vigenere(key, divisor));
+		}
+		long[] rsa = rsaKey(divisor);
+		if(rsa != null){
+			cipher("rsa" + suffix + " pq=" + rsa[0] * rsa[1], encoding, message, CryptoFactory.rsa(rsa[0], rsa[1], rsa[2]));
+		}
+		Bench.time("oneTimePad" + suffix, length, new Bench.Task() {
+			@Override
+			public long run() {
+				return encoding.encrypt(message, CryptoFactory.oneTimePad(pad, divisor)).charAt(0);
+			}
+		});
+	}
+
+	private static void discreteMath(int bits, Random random){
+		final long n = (1L << (bits - 1)) + 1 + 2 * random.nextInt(1 << 20);
+		final long[] values = new long[SAMPLES];
+		for(int i = 0; i < values.length; ++i){
+			values[i] = 1 + Math.floorMod(random.nextLong(), n - 1);
+		}
+		final long expo = (n >>> 1) | 1;
+		String suffix = " bits=" + bits;
+		Bench.time("gcd" + suffix, SAMPLES, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(long v : values){
+					sum += DiscreteMath.gcd(v, n);
+				}
+				return sum;
+			}
+		});
+		double loop = Bench.time("modInv" + suffix, SAMPLES, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(long v : values){
+					if(DiscreteMath.gcd(v, n) == 1){
+						sum += DiscreteMath.modInv(v, n);
+					}
+				}
+				return sum;
+			}
+		});
+		double batch = Bench.time("modInvBatch" + suffix, SAMPLES, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(long inverse : DiscreteMath.modInvBatch(values, n)){
+					sum += inverse;
+				}
+				return sum;
+			}
+		});
+		System.out.printf("%-48s %12.2fx%n", "modInvBatch" + suffix + " speed-up", loop / batch);
+		double probable = Bench.time("isProbablePrime" + suffix, SAMPLES, new Bench.Task() {
+			@Override
+			public long run() {
+				long count = 0;
+				for(long v : values){
+					if(BigInteger.valueOf(v).isProbablePrime(64)){
+						++count;
+					}
+				}
+				return count;
+			}
+		});
+		double millerRabin = Bench.time("isPrime" + suffix, SAMPLES, new Bench.Task() {
+			@Override
+			public long run() {
+				long count = 0;
+				for(long v : values){
+					if(DiscreteMath.isPrime(v)){
+						++count;
+					}
+				}
+				return count;
+			}
+		});
+		System.out.printf("%-48s %12.2fx%n", "isPrime" + suffix + " speed-up", probable / millerRabin);
+		Bench.time("modExpoIterative" + suffix, SAMPLES, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(long v : values){
+					sum += DiscreteMath.modExpoIterative(v, expo, n);
+				}
+				return sum;
+			}
+		});
+		Bench.time("modExpoRecursive" + suffix, SAMPLES, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(long v : values){
+					sum += DiscreteMath.modExpoRecursive(v, expo, n);
+				}
+				return sum;
+			}
+		});
+		Bench.time("modExpo" + suffix, SAMPLES, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(long v : values){
+					sum += DiscreteMath.modExpo(v, expo, n);
+				}
+				return sum;
+			}
+		});
+	}
+
+	public static void main(String[] args) {
+		int[] lengths = Bench.param(args, "length", 16, 1024, 65536);
+		int[] divisors = Bench.param(args, "divisor", 26, 128);
+		int[] keySizes = Bench.param(args, "keySize", 4, 32);
+		int[] bits = Bench.param(args, "bits", 31, 62);
+		Random random = new Random(42);
+		for(int b : bits){
+			discreteMath(b, random);
+		}
+		for(int length : lengths){
+			for(int divisor : divisors){
+				ciphers(length, divisor, keySizes, random);
+			}
+		}
+	}
+
+}
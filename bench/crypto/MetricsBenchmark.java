@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Random;
+
+/**
+ * Measures the cost of {@code CryptoMetrics}: the same message goes through
+ * {@code Encoding.encrypt} with a plain cipher, with an instrumented one while
+ * instrumentation is off, and while it is on.
+ * <pre>
+ * java -cp bin crypto.MetricsBenchmark length=16,1024,65536
+ * </pre>
+ * @author Nathaniel
+ *
+ */
+
+public class MetricsBenchmark {
+
+	private static double time(String name, final String message, final Crypto crypto){
+		return Bench.time(name, message.length(), new Bench.Task() {
+			@Override
+			public long run() {
+				return Encoding.DEFAULT.encrypt(message, crypto).charAt(0);
+			}
+		});
+	}
+
+	private static void compare(String name, String message, Crypto crypto){
+		Crypto instrumented = CryptoFactory.instrument(crypto, name);
+		CryptoMetrics.setEnabled(false);
+		double plain = time(name + " (plain)", message, crypto);
+		double off = time(name + " (metrics off)", message, instrumented);
+		CryptoMetrics.setEnabled(true);
+		double on = time(name + " (metrics on)", message, instrumented);
+		CryptoMetrics.setEnabled(false);
+		System.out.printf("%-48s %12.2fx %12.2fx%n", name + " overhead off/on", off / plain, on / plain);
+	}
+
+	public static void main(String[] args) {
+		int[] lengths = Bench.param(args, "length", 16, 1024, 65536);
+		Random random = new Random(42);
+		for(int length : lengths){
+			char[] chars = new char[length];
+			for(int i = 0; i < length; ++i){
+				chars[i] = (char) ('a' + random.nextInt(26));
+			}
+			String message = new String(chars);
+			String suffix = " len=" + length;
+			compare("caesar" + suffix, message, CryptoFactory.caesar(5, 26));
+			compare("vigenere" + suffix, message, CryptoFactory.vigenere(new int[] {10, 4, 24, 7, 1}, 26));
+		}
+		for(CryptoMetrics.Snapshot snapshot : CryptoMetrics.snapshot().values()){
+			System.out.println(snapshot);
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Compares {@code DiscreteMath.modExpoRecursive} with the Montgomery engine behind
+ * {@code DiscreteMath.modExpo} and the per-exponent {@code ExponentPlan}, for a toy
+ * RSA modulus and for moduli near 2^62.
+ * Every result is first checked against {@code BigInteger.modPow}.
+ * @author Nathaniel
+ *
+ */
+
+public class ModExpoBenchmark {
+
+	private static final int COUNT = 1 << 12;
+
+	private static void check(long base, long expo, long divisor){
+		long expected = BigInteger.valueOf(base).modPow(BigInteger.valueOf(expo), BigInteger.valueOf(divisor)).longValue();
+		long[] actual = {
+			DiscreteMath.modExpo(base, expo, divisor),
+			DiscreteMath.modExpoIterative(base, expo, divisor),
+			DiscreteMath.modExpoRecursive(base, expo, divisor)
+		};
+		for(long a : actual){
+			if(a != expected){
+				throw new RuntimeException(base + "^" + expo + " mod " + divisor + ": expected " + expected + ", got " + a);
+			}
+		}
+		long square = BigInteger.valueOf(base).pow(2).mod(BigInteger.valueOf(divisor)).longValue();
+		if(DiscreteMath.mulMod(base, base, divisor) != square){
+			throw new RuntimeException(base + "^2 mod " + divisor + ": expected " + square);
+		}
+	}
+
+	private static void compare(String name, final long divisor, Random random){
+		final long[] bases = new long[COUNT];
+		for(int i = 0; i < bases.length; ++i){
+			bases[i] = 1 + Math.floorMod(random.nextLong(), divisor - 1);
+		}
+		final long expo = Math.floorMod(random.nextLong(), divisor - 1) | 1;
+		for(int i = 0; i < 64; ++i){
+			check(bases[i], expo, divisor);
+		}
+		check(divisor - 1, expo, divisor);
+		check(divisor - 1, 2, divisor);
+		final Montgomery montgomery = new Montgomery(divisor);
+		final ExponentPlan plan = new ExponentPlan(montgomery, expo);
+		for(int i = 0; i < 64; ++i){
+			if(plan.pow(bases[i]) != montgomery.pow(bases[i], expo)){
+				throw new RuntimeException("Exponent plan disagrees for " + bases[i] + "^" + expo + " mod " + divisor);
+			}
+		}
+		double before = Bench.time(name + " (recursive)", COUNT, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(long b : bases){
+					sum += DiscreteMath.modExpoRecursive(b, expo, divisor);
+				}
+				return sum;
+			}
+		});
+		double after = Bench.time(name + " (montgomery)", COUNT, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(long b : bases){
+					sum += montgomery.pow(b, expo);
+				}
+				return sum;
+			}
+		});
+		double planned = Bench.time(name + " (sliding window plan)", COUNT, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(long b : bases){
+					sum += plan.pow(b);
+				}
+				return sum;
+			}
+		});
+		System.out.printf("%-48s %12.2fx%n", name + " speed-up", before / after);
+		System.out.printf("%-48s %12.2fx%n", name + " speed-up with plan", before / planned);
+	}
+
+	private static void compareSymbols(String name, long p, long q, final long e, Random random){
+		final long n = p * q;
+		final int[] message = new int[COUNT];
+		for(int i = 0; i < message.length; ++i){
+			message[i] = 32 + random.nextInt(96);
+		}
+		final RSACrypto rsa = new RSACrypto(p, q, e);
+		final int[] buffer = new int[message.length];
+		double before = Bench.time(name + " (modExpoRecursive)", COUNT, new Bench.Task() {
+			@Override
+			public long run() {
+				long sum = 0;
+				for(int x : message){
+					sum += DiscreteMath.modExpoRecursive(x, e, n);
+				}
+				return sum;
+			}
+		});
+		double after = Bench.time(name + " (RSACrypto, cached)", COUNT, new Bench.Task() {
+			@Override
+			public long run() {
+				rsa.encrypt(message, 0, buffer, 0, message.length);
+				return buffer[0];
+			}
+		});
+		System.out.printf("%-48s %12.2fx%n", name + " speed-up", before / after);
+	}
+
+	public static void main(String[] args) {
+		Random random = new Random(42);
+		compare("n=91", 91, random);
+		compare("n=2^31-1", Integer.MAX_VALUE, random);
+		compare("n=2^62-57", (1L << 62) - 57, random);
+		compare("n=2^62+135", (1L << 62) + 135, random);
+		compare("n=2^63-25", Long.MAX_VALUE - 24, random);
+		long p = BigInteger.valueOf(40000).nextProbablePrime().longValue();
+		long q = BigInteger.valueOf(p).nextProbablePrime().longValue();
+		compareSymbols("ascii rsa n=" + p * q, p, q, 65537, random);
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the per-symbol cost of the table-driven Caesar, Affine and Vigenere
+ * ciphers with the ones that call {@code DiscreteMath.mod} for every symbol.
+ * @author Nathaniel
+ *
+ */
+
+public class TableCryptoBenchmark {
+
+	private static final int LENGTH = 1 << 20;
+
+	private static Bench.Task task(final Crypto c, final int[] message, final int[] buffer){
+		return new Bench.Task() {
+			@Override
+			public long run() {
+				c.encrypt(message, 0, buffer, 0, message.length);
+				return buffer[buffer.length - 1];
+			}
+		};
+	}
+
+	private static void compare(String name, Crypto plain, Crypto table, int[] message){
+		int[] buffer = new int[message.length];
+		if(!Arrays.equals(plain.encrypt(message), table.encrypt(message))){
+			throw new RuntimeException(name + ": table and plain ciphers disagree");
+		}
+		double before = Bench.time(name + " (mod)", message.length, task(plain, message, buffer));
+		double after = Bench.time(name + " (table)", message.length, task(table, message, buffer));
+		System.out.printf("%-48s %12.2fx%n", name + " speed-up", before / after);
+	}
+
+	public static void main(String[] args) {
+		int[] divisors = {26, 128};
+		Random random = new Random(42);
+		for(int divisor : divisors){
+			int[] message = new int[LENGTH];
+			for(int i = 0; i < message.length; ++i){
+				message[i] = random.nextInt(divisor);
+			}
+			int[] key = {10, 4, 24, 7, 1};
+			compare("caesar n=" + divisor, new CaesarCrypto(5, divisor),
+					new SubstitutionCrypto(new CaesarCrypto(5, divisor), divisor), message);
+			compare("affine n=" + divisor, new AffineCrypto(5, 7, divisor),
+					new SubstitutionCrypto(new AffineCrypto(5, 7, divisor), divisor), message);
+			compare("vigenere n=" + divisor, new VigenereCrypto(key, divisor),
+					new TableVigenereCrypto(key, divisor), message);
+		}
+	}
+
+}
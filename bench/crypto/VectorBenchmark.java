@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Random;
+
+/**
+ * Compares the Vector API kernels with the scalar ones, in elements (lanes) per
+ * second, and with the lookup tables used by {@code CryptoFactory}. The vector
+ * kernels are only loaded if the module is added:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp bin crypto.VectorBenchmark length=1024,1048576 divisor=26,128
+ * </pre>
+ * @author Nathaniel
+ *
+ */
+
+public class VectorBenchmark {
+
+	private interface Kernel {
+		void run(CipherKernels kernels, int[] src, int[] dst);
+	}
+
+	private static Bench.Task task(final CipherKernels kernels, final Kernel kernel, final int[] src, final int[] dst){
+		return new Bench.Task() {
+			@Override
+			public long run() {
+				kernel.run(kernels, src, dst);
+				return dst[dst.length - 1];
+			}
+		};
+	}
+
+	private static void compare(String name, Kernel kernel, int[] src){
+		int[] dst = new int[src.length];
+		double scalar = Bench.time(name + " (scalar)", src.length, task(CipherKernels.SCALAR, kernel, src, dst));
+		if(CipherKernels.BEST.isVectorized()){
+			double vector = Bench.time(name + " (vector)", src.length, task(CipherKernels.BEST, kernel, src, dst));
+			System.out.printf("%-48s %12.2fx%n", name + " speed-up", scalar / vector);
+		}
+	}
+
+	private static void table(String name, final Crypto crypto, final int[] src){
+		final int[] dst = new int[src.length];
+		Bench.time(name + " (table)", src.length, new Bench.Task() {
+			@Override
+			public long run() {
+				crypto.encrypt(src, 0, dst, 0, src.length);
+				return dst[dst.length - 1];
+			}
+		});
+	}
+
+	public static void main(String[] args) {
+		int[] lengths = Bench.param(args, "length", 1024, 1 << 20);
+		int[] divisors = Bench.param(args, "divisor", 26, 128);
+		System.out.println("vector kernels: " + (CipherKernels.BEST.isVectorized() ? "loaded" : "not available"));
+		Random random = new Random(42);
+		for(final int length : lengths){
+			for(final int n : divisors){
+				int[] src = new int[length];
+				final int[] pad = new int[length];
+				for(int i = 0; i < length; ++i){
+					src[i] = random.nextInt(n);
+					pad[i] = random.nextInt(n);
+				}
+				int[] key = {10, 4, 24, 7, 1};
+				final int[] shifts = new int[key.length];
+				for(int j = 0; j < key.length; ++j){
+					shifts[j] = n - key[j] % n;
+				}
+				final int[] extended = CipherKernels.extend(shifts);
+				String suffix = " len=" + length + " n=" + n;
+				compare("caesar" + suffix, new Kernel() {
+					@Override
+					public void run(CipherKernels kernels, int[] s, int[] d) {
+						kernels.shift(s, 0, d, 0, s.length, n - 5, n);
+					}
+				}, src);
+				table("caesar" + suffix, new SubstitutionCrypto(new CaesarCrypto(5, n), n), src);
+				compare("affine" + suffix, new Kernel() {
+					@Override
+					public void run(CipherKernels kernels, int[] s, int[] d) {
+						kernels.affine(s, 0, d, 0, s.length, n % 2 == 0 ? 5 : 2, 7, n);
+					}
+				}, src);
+				compare("vigenere" + suffix, new Kernel() {
+					@Override
+					public void run(CipherKernels kernels, int[] s, int[] d) {
+						kernels.shifts(s, 0, d, 0, s.length, extended, shifts.length, 0, n);
+					}
+				}, src);
+				table("vigenere" + suffix, new TableVigenereCrypto(key, n), src);
+				compare("oneTimePad" + suffix, new Kernel() {
+					@Override
+					public void run(CipherKernels kernels, int[] s, int[] d) {
+						kernels.pad(s, 0, pad, 0, d, 0, s.length, false, n);
+					}
+				}, src);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of every built-in {@code Crypto} through {@code Encoding.encrypt},
+ * parameterized by the message length, the divisor ("n") and, for Vigenere, the key
+ * size. One operation encrypts a whole message; divide by {@code length} for symbols
+ * per second. Run with {@code -prof gc} for the allocation rate, e.g.
+ * <pre>
+ * java -jar jmh/target/benchmarks.jar CipherBenchmark -p length=1024 -p divisor=26 -prof gc
+ * </pre>
+ * A One Time Pad can only encrypt one message, so its benchmark creates a new
+ * {@code Crypto} over the same pad for every message; the pad itself is not copied.
+ * @author Nathaniel
+ *
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CipherBenchmark {
+
+	@Param({"16", "1024", "65536"})
+	public int length;
+
+	@Param({"26", "128"})
+	public int divisor;
+
+	private Encoding encoding;
+	private String message;
+	private int[] pad;
+	private Crypto caesar;
+	private Crypto affine;
+	private Crypto rsa;
+
+	/**
+	 * The Vigenere key, a parameter of the Vigenere benchmark only
+	 */
+	@State(Scope.Benchmark)
+	public static class VigenereKey {
+
+		@Param({"4", "32"})
+		public int keySize;
+
+		private Crypto vigenere;
+
+		@Setup
+		public void setUp(CipherBenchmark benchmark){
+			Random random = new Random(43);
+			int[] key = new int[this.keySize];
+			for(int i = 0; i < key.length; ++i){
+				key[i] = random.nextInt(benchmark.divisor);
+			}
+			this.vigenere = CryptoFactory.vigenere(key, benchmark.divisor);
+		}
+
+	}
+
+	private static Encoding encoding(int divisor){
+		if(divisor == 26){
+			return Encoding.DEFAULT;
+		}
+		if(divisor == 128){
+			return Encoding.ASCII;
+		}
+		Map<Character, Integer> map = new HashMap<Character, Integer>();
+		for(int i = 0; i < divisor; ++i){
+			map.put((char) (i + 0x100), i);
+		}
+		return new Encoding(map);
+	}
+
+	private static int coprime(int from, long n){
+		int a = from;
+		while(DiscreteMath.gcd(a, n) != 1){
+			++a;
+		}
+		return a;
+	}
+
+	/**
+	 * The RSA key with the largest p * q that fits in the divisor, so that every
+	 * cipher can be encoded
+	 */
+	private static long[] rsaKey(int divisor){
+		long bestP = 0;
+		long bestQ = 0;
+		for(long p = 2; p * p < divisor; ++p){
+			if(!DiscreteMath.isPrime(p)){
+				continue;
+			}
+			for(long q = p + 1; p * q <= divisor; ++q){
+				if(DiscreteMath.isPrime(q) && p * q > bestP * bestQ){
+					bestP = p;
+					bestQ = q;
+				}
+			}
+		}
+		if(bestP == 0){
+			throw new RuntimeException("Illegal divisor " + divisor + ". It must be at least 6 for RSA.");
+		}
+		return new long[] {bestP, bestQ, coprime(3, (bestP - 1) * (bestQ - 1))};
+	}
+
+	@Setup
+	public void setUp(){
+		Random random = new Random(42);
+		this.encoding = encoding(this.divisor);
+		char[] chars = new char[this.length];
+		for(int i = 0; i < this.length; ++i){
+			chars[i] = this.encoding.encode(random.nextInt(this.divisor));
+		}
+		this.message = new String(chars);
+		this.pad = new int[this.length];
+		for(int i = 0; i < this.length; ++i){
+			this.pad[i] = random.nextInt(this.divisor);
+		}
+		this.caesar = CryptoFactory.caesar(5, this.divisor);
+		this.affine = CryptoFactory.affine(coprime(5, this.divisor), 7, this.divisor);
+		long[] key = rsaKey(this.divisor);
+		this.rsa = CryptoFactory.rsa(key[0], key[1], key[2]);
+	}
+
+	@Benchmark
+	public String caesar(){
+		return this.encoding.encrypt(this.message, this.caesar);
+	}
+
+	@Benchmark
+	public String affine(){
+		return this.encoding.encrypt(this.message, this.affine);
+	}
+
+	@Benchmark
+	public String vigenere(VigenereKey key){
+		return this.encoding.encrypt(this.message, key.vigenere);
+	}
+
+	@Benchmark
+	public String rsa(){
+		return this.encoding.encrypt(this.message, this.rsa);
+	}
+
+	@Benchmark
+	public String oneTimePad(){
+		return this.encoding.encrypt(this.message, CryptoFactory.oneTimePad(this.pad, this.divisor));
+	}
+
+}
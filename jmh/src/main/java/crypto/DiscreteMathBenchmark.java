@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the {@code DiscreteMath} primitives, for a random odd modulus of
+ * {@code bits} bits. Each operation is one call on one of {@code SAMPLES} random
+ * values, so that the branch predictor cannot learn a single input. Run with
+ * {@code -prof gc} for the allocation rate, e.g.
+ * <pre>
+ * java -jar jmh/target/benchmarks.jar DiscreteMathBenchmark -p bits=62 -prof gc
+ * </pre>
+ * @author Nathaniel
+ *
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscreteMathBenchmark {
+
+	private static final int SAMPLES = 1 << 10;
+
+	@Param({"31", "62"})
+	public int bits;
+
+	private long n;
+	private long expo;
+	private long[] values;
+	// The values that are coprime to n
+	private long[] units;
+
+	@Setup
+	public void setUp(){
+		Random random = new Random(42);
+		this.n = (1L << (this.bits - 1)) + 1 + 2 * random.nextInt(1 << 20);
+		this.expo = (this.n >>> 1) | 1;
+		this.values = new long[SAMPLES];
+		this.units = new long[SAMPLES];
+		for(int i = 0; i < SAMPLES; ++i){
+			this.values[i] = 1 + Math.floorMod(random.nextLong(), this.n - 1);
+			long unit;
+			do{
+				unit = 1 + Math.floorMod(random.nextLong(), this.n - 1);
+			}
+			while(DiscreteMath.gcd(unit, this.n) != 1);
+			this.units[i] = unit;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public long gcd(){
+		long sum = 0;
+		for(long v : this.values){
+			sum += DiscreteMath.gcd(v, this.n);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public long gcdBinary(){
+		long sum = 0;
+		for(long v : this.values){
+			sum += DiscreteMath.gcdBinary(v, this.n);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public long modInv(){
+		long sum = 0;
+		for(long v : this.units){
+			sum += DiscreteMath.modInv(v, this.n);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public long modInvBatch(){
+		long sum = 0;
+		for(long inverse : DiscreteMath.modInvBatch(this.units, this.n)){
+			sum += inverse;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public long modExpoIterative(){
+		long sum = 0;
+		for(long v : this.values){
+			sum += DiscreteMath.modExpoIterative(v, this.expo, this.n);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public long modExpoRecursive(){
+		long sum = 0;
+		for(long v : this.values){
+			sum += DiscreteMath.modExpoRecursive(v, this.expo, this.n);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public long modExpo(){
+		long sum = 0;
+		for(long v : this.values){
+			sum += DiscreteMath.modExpo(v, this.expo, this.n);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public long isPrime(){
+		long count = 0;
+		for(long v : this.values){
+			if(DiscreteMath.isPrime(v)){
+				++count;
+			}
+		}
+		return count;
+	}
+
+}
@@ -4,36 +4,100 @@
 
 package crypto;
 
-class AffineCrypto implements Crypto {
+class AffineCrypto implements SymbolCrypto {
 	
-	private int a;
-	private int b;
-	private int aModInv;
-	private int divisor;
+	private final int a;
+	private final int b;
+	private final int aModInv;
+	private final int divisor;
+	// x -> a * x + b (mod divisor) with a and b reduced into [0, divisor), for the kernels
+	private final int encryptA;
+	private final int encryptB;
+	private final int decryptA;
+	private final int decryptB;
 
 	protected AffineCrypto(int a, int b, int divisor) {
 		this.a = a;
 		this.b = b;
 		this.divisor = divisor;
 		this.aModInv = (int) DiscreteMath.modInv(a, this.divisor);
+		if(divisor > 0){
+			this.encryptA = DiscreteMath.mod(a, divisor);
+			this.encryptB = DiscreteMath.mod(b, divisor);
+			this.decryptA = DiscreteMath.mod(this.aModInv, divisor);
+			this.decryptB = (int) DiscreteMath.mod(-(long) this.decryptA * this.encryptB, divisor);
+		}
+		else{
+			this.encryptA = 0;
+			this.encryptB = 0;
+			this.decryptA = 0;
+			this.decryptB = 0;
+		}
+	}
+
+	int getA(){
+		return this.a;
+	}
+
+	int getB(){
+		return this.b;
+	}
+
+	int getDivisor(){
+		return this.divisor;
 	}
 
 	@Override
 	public int[] decrypt(int[] y) {
 		int[] result = new int[y.length];
-		for(int i = 0; i < y.length; ++i){
-			result[i] = (int) DiscreteMath.mod(this.aModInv * (y[i] - b), this.divisor);
-		}
+		this.decrypt(y, 0, result, 0, y.length);
 		return result;
 	}
 
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		if(this.divisor > 0){
+			CipherKernels.BEST.affine(src, srcOff, dst, dstOff, len, this.decryptA, this.decryptB, this.divisor);
+			return;
+		}
+		for(int i = 0; i < len; ++i){
+			dst[dstOff + i] = this.decrypt(src[srcOff + i]);
+		}
+	}
+
+	@Override
+	public int decrypt(int y) {
+		if(this.divisor > 0){
+			// the same as the kernels, in long so that it cannot overflow
+			return (int) DiscreteMath.mod((long) this.decryptA * y + this.decryptB, this.divisor);
+		}
+		return DiscreteMath.mod(this.aModInv * (y - b), this.divisor);
+	}
+
 	@Override
 	public int[] encrypt(int[] x) {
 		int[] result = new int[x.length];
-		for(int i = 0; i < x.length; ++i){
-			result[i] = (int) DiscreteMath.mod(this.a * x[i] + b, this.divisor);
-		}
+		this.encrypt(x, 0, result, 0, x.length);
 		return result;
 	}
 
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		if(this.divisor > 0){
+			CipherKernels.BEST.affine(src, srcOff, dst, dstOff, len, this.encryptA, this.encryptB, this.divisor);
+			return;
+		}
+		for(int i = 0; i < len; ++i){
+			dst[dstOff + i] = this.encrypt(src[srcOff + i]);
+		}
+	}
+
+	@Override
+	public int encrypt(int x) {
+		if(this.divisor > 0){
+			return (int) DiscreteMath.mod((long) this.encryptA * x + this.encryptB, this.divisor);
+		}
+		return DiscreteMath.mod(this.a * x + b, this.divisor);
+	}
+
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * A One Time Pad held in memory as an array
+ * @author Nathaniel
+ *
+ */
+
+class ArrayPadSource implements PadSource {
+
+	private final int[] pad;
+
+	ArrayPadSource(int[] pad) {
+		this.pad = pad;
+	}
+
+	int[] getPad(){
+		return this.pad;
+	}
+
+	@Override
+	public long length() {
+		return this.pad.length;
+	}
+
+	@Override
+	public void read(long offset, int[] dst, int dstOff, int len) {
+		if(offset < 0 || offset + len > this.pad.length){
+			throw new RuntimeException("This one time pad is not long enough");
+		}
+		System.arraycopy(this.pad, (int) offset, dst, dstOff, len);
+	}
+
+}
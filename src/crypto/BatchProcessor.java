@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Encrypts/decrypts many independent records, one per line, on a fixed pool of
+ * threads. Each record is processed as if by its own call to
+ * {@link Encoding#encrypt(String, Crypto)}, so e.g. every record starts at the first
+ * letter of a Vigenere key. Records are handed to the pool in batches, at most
+ * {@code window} batches are in flight at a time, and the results are written in the
+ * order of the input. A reader faster than the pool therefore waits instead of filling
+ * the memory. The {@code Crypto} object is shared by all threads; a One Time Pad
+ * cannot be used, since it may only encrypt one message.
+ * @author Nathaniel
+ *
+ */
+
+public class BatchProcessor {
+
+	/**
+	 * The default number of records handed to a thread at a time
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private final Encoding encoding;
+	private final Crypto crypto;
+	private final boolean decrypt;
+	private final int threads;
+	private final int window;
+	private final int batchSize;
+
+	/**
+	 * Create a {@code BatchProcessor} with one thread per processor
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the records; {@code false} to encrypt them
+	 */
+	public BatchProcessor(Encoding encoding, Crypto crypto, boolean decrypt) {
+		this(encoding, crypto, decrypt, Runtime.getRuntime().availableProcessors(),
+				4 * Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Create a {@code BatchProcessor}
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the records; {@code false} to encrypt them
+	 * @param threads The number of threads
+	 * @param window The largest number of batches read but not yet written
+	 * @param batchSize The number of records handed to a thread at a time
+	 */
+	public BatchProcessor(Encoding encoding, Crypto crypto, boolean decrypt, int threads, int window, int batchSize) {
+		if(threads <= 0 || window <= 0 || batchSize <= 0){
+			throw new RuntimeException("Illegal batch settings: threads, window and batch size must be positive.");
+		}
+		this.encoding = encoding;
+		this.crypto = crypto;
+		this.decrypt = decrypt;
+		this.threads = threads;
+		this.window = window;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Encrypt/decrypt every line of a reader and write the results, one per line
+	 * @param in The records, one per line
+	 * @param out The {@code Writer} that receives the results
+	 * @return The number of records processed
+	 * @throws IOException If reading or writing fails
+	 */
+	public long process(BufferedReader in, Writer out) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "crypto-batch");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		ArrayDeque<Future<String[]>> pending = new ArrayDeque<Future<String[]>>(this.window);
+		long count = 0;
+		try{
+			String[] batch;
+			while((batch = this.read(in)) != null){
+				if(pending.size() == this.window){
+					write(pending.poll(), out);
+				}
+				pending.add(pool.submit(this.task(batch)));
+				count += batch.length;
+			}
+			while(!pending.isEmpty()){
+				write(pending.poll(), out);
+			}
+		}
+		finally{
+			pool.shutdownNow();
+		}
+		out.flush();
+		return count;
+	}
+
+	private String[] read(BufferedReader in) throws IOException {
+		String[] batch = new String[this.batchSize];
+		int n = 0;
+		String line;
+		while(n < batch.length && (line = in.readLine()) != null){
+			batch[n++] = line;
+		}
+		if(n == 0){
+			return null;
+		}
+		return n == batch.length ? batch : Arrays.copyOf(batch, n);
+	}
+
+	private Callable<String[]> task(final String[] batch){
+		return new Callable<String[]>() {
+			@Override
+			public String[] call() {
+				for(int i = 0; i < batch.length; ++i){
+					batch[i] = decrypt ? encoding.decrypt(batch[i], crypto) : encoding.encrypt(batch[i], crypto);
+				}
+				return batch;
+			}
+		};
+	}
+
+	private static void write(Future<String[]> future, Writer out) throws IOException {
+		String[] batch;
+		try{
+			batch = future.get();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a batch");
+		}
+		catch(ExecutionException e){
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+		for(String record : batch){
+			out.write(record);
+			out.write('\n');
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.math.BigInteger;
+
+/**
+ * Solves systems of congruences x = r[i] (mod m[i]) for a fixed set of pairwise
+ * coprime moduli of any size (e.g. the primes of an RSA key), with Garner's
+ * algorithm as in {@code ChineseRemainder}. The products of the moduli modulo each
+ * other and their inverses are computed once by the constructor, so solving a
+ * system needs no inversion.
+ * @author Nathaniel
+ *
+ */
+
+public final class BigChineseRemainder {
+
+	private final BigInteger[] moduli;
+	// prefix[i][j] = m[0] * ... * m[j - 1] (mod m[i]) for j < i
+	private final BigInteger[][] prefix;
+	// inverse[i] = (m[0] * ... * m[i - 1])^(-1) (mod m[i])
+	private final BigInteger[] inverse;
+	private final BigInteger modulus;
+
+	/**
+	 * Prepare the constants for a set of moduli
+	 * @param moduli Positive integers, pairwise coprime
+	 */
+	public BigChineseRemainder(BigInteger... moduli) {
+		if(moduli.length == 0){
+			throw new RuntimeException("At least one modulus is needed");
+		}
+		int k = moduli.length;
+		this.moduli = moduli.clone();
+		this.prefix = new BigInteger[k][];
+		this.inverse = new BigInteger[k];
+		BigInteger modulus = BigInteger.ONE;
+		for(int i = 0; i < k; ++i){
+			BigInteger m = this.moduli[i];
+			if(m.signum() <= 0){
+				throw new RuntimeException("Illegal modulus " + m + ". It must be positive.");
+			}
+			this.prefix[i] = new BigInteger[i];
+			BigInteger p = BigInteger.ONE.mod(m);
+			for(int j = 0; j < i; ++j){
+				this.prefix[i][j] = p;
+				p = p.multiply(this.moduli[j]).mod(m);
+			}
+			if(!p.gcd(m).equals(BigInteger.ONE)){
+				throw new RuntimeException("Illegal modulus " + m + ". The moduli must be pairwise coprime.");
+			}
+			this.inverse[i] = p.modInverse(m);
+			modulus = modulus.multiply(m);
+		}
+		this.modulus = modulus;
+	}
+
+	/**
+	 * Get the product of the moduli
+	 * @return The product, which every solution is reduced by
+	 */
+	public BigInteger getModulus(){
+		return this.modulus;
+	}
+
+	/**
+	 * Solve x = residues[i] (mod moduli[i]) for every i
+	 * @param residues Integers, which could be negative, zero, or positive; one for each modulus
+	 * @return The solution x in [0, product of the moduli)
+	 */
+	public BigInteger solve(BigInteger[] residues){
+		int k = this.moduli.length;
+		if(residues.length != k){
+			throw new RuntimeException("Illegal number of residues " + residues.length + ". It must be " + k + ".");
+		}
+		BigInteger[] v = new BigInteger[k];
+		for(int i = 0; i < k; ++i){
+			BigInteger m = this.moduli[i];
+			BigInteger sum = BigInteger.ZERO;
+			for(int j = 0; j < i; ++j){
+				sum = sum.add(v[j].multiply(this.prefix[i][j]));
+			}
+			v[i] = residues[i].subtract(sum).multiply(this.inverse[i]).mod(m);
+		}
+		BigInteger x = v[k - 1];
+		for(int i = k - 2; i >= 0; --i){
+			x = x.multiply(this.moduli[i]).add(v[i]);
+		}
+		return x;
+	}
+
+}
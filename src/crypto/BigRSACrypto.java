@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+
+/**
+ * RSA with {@code BigInteger} keys of any size (e.g. 2048 or 4096-bit moduli).
+ * Decryption uses the Chinese Remainder Theorem: d mod (p-1), d mod (q-1) and
+ * q^(-1) mod p are computed once in the constructor, so each decryption is two
+ * exponentiations with half-size numbers instead of one with full-size numbers.
+ * <p>
+ * A {@code byte[]} message is cut into blocks of {@link #getPlainBlockSize()} bytes.
+ * Each block is prefixed with a 0x01 byte, so that its length and leading zero bytes
+ * survive the round trip, and is encrypted into {@link #getCipherBlockSize()} bytes.
+ * @author Nathaniel
+ *
+ */
+
+class BigRSACrypto implements BlockCrypto {
+
+	private final BigInteger n;
+	private final BigInteger e;
+	private final BigInteger p;
+	private final BigInteger q;
+	private final BigInteger dp;
+	private final BigInteger dq;
+	private final BigInteger qInv;
+	private final int cipherBlockSize;
+
+	protected BigRSACrypto(BigInteger p, BigInteger q, BigInteger e) {
+		if(p.signum() <= 0 || q.signum() <= 0 || e.signum() <= 0){
+			throw new RuntimeException("p, q and e must be positive");
+		}
+		if(p.equals(q)){
+			throw new RuntimeException("p and q must be different primes");
+		}
+		BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+		if(!phi.gcd(e).equals(BigInteger.ONE)){
+			throw new RuntimeException("Modulus inverse does not exist because gcd(a,b) != 1");
+		}
+		BigInteger d = e.modInverse(phi);
+		this.n = p.multiply(q);
+		this.e = e;
+		this.p = p;
+		this.q = q;
+		this.dp = d.mod(p.subtract(BigInteger.ONE));
+		this.dq = d.mod(q.subtract(BigInteger.ONE));
+		this.qInv = q.modInverse(p);
+		this.cipherBlockSize = (this.n.bitLength() + 7) / 8;
+	}
+
+	/**
+	 * @return The number of message bytes in each block of {@link #encrypt(byte[])}
+	 */
+	int getPlainBlockSize(){
+		return this.cipherBlockSize - 2;
+	}
+
+	/**
+	 * @return The number of cipher bytes in each block of {@link #encrypt(byte[])}
+	 */
+	int getCipherBlockSize(){
+		return this.cipherBlockSize;
+	}
+
+	private void checkRange(BigInteger v){
+		if(v.signum() < 0 || v.compareTo(this.n) >= 0){
+			throw new RuntimeException("Illegal block " + v + ". It must be in [0, n).");
+		}
+	}
+
+	@Override
+	public BigInteger decrypt(BigInteger y) {
+		this.checkRange(y);
+		BigInteger m1 = y.modPow(this.dp, this.p);
+		BigInteger m2 = y.modPow(this.dq, this.q);
+		BigInteger h = this.qInv.multiply(m1.subtract(m2)).mod(this.p);
+		return m2.add(h.multiply(this.q));
+	}
+
+	@Override
+	public BigInteger encrypt(BigInteger x) {
+		this.checkRange(x);
+		return x.modPow(this.e, this.n);
+	}
+
+	@Override
+	public byte[] decrypt(byte[] y) {
+		if(y.length % this.cipherBlockSize != 0){
+			throw new RuntimeException("Cipher length " + y.length + " is not a multiple of the block size " + this.cipherBlockSize);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(y.length);
+		byte[] block = new byte[this.cipherBlockSize];
+		for(int off = 0; off < y.length; off += this.cipherBlockSize){
+			System.arraycopy(y, off, block, 0, this.cipherBlockSize);
+			byte[] m = this.decrypt(new BigInteger(1, block)).toByteArray();
+			if(m[0] != 1){
+				throw new RuntimeException("Corrupted cipher block at byte " + off);
+			}
+			out.write(m, 1, m.length - 1);
+		}
+		return out.toByteArray();
+	}
+
+	@Override
+	public byte[] encrypt(byte[] x) {
+		int plainBlockSize = this.getPlainBlockSize();
+		if(plainBlockSize <= 0){
+			throw new RuntimeException("The modulus is too small to encrypt bytes");
+		}
+		int blocks = (x.length + plainBlockSize - 1) / plainBlockSize;
+		byte[] result = new byte[blocks * this.cipherBlockSize];
+		byte[] block = new byte[plainBlockSize + 1];
+		for(int i = 0; i < blocks; ++i){
+			int off = i * plainBlockSize;
+			int len = Math.min(plainBlockSize, x.length - off);
+			if(len != plainBlockSize){
+				block = new byte[len + 1];
+			}
+			block[0] = 1;
+			System.arraycopy(x, off, block, 1, len);
+			byte[] c = this.encrypt(new BigInteger(1, block)).toByteArray();
+			// toByteArray() may add a sign byte or drop leading zeros
+			int copy = Math.min(c.length, this.cipherBlockSize);
+			System.arraycopy(c, c.length - copy, result, (i + 1) * this.cipherBlockSize - copy, copy);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.math.BigInteger;
+
+/**
+ * The {@code BlockCrypto} interface defines the ability of any implementing class
+ * to encrypt/decrypt values too large for an {@code int}, either one number at a time
+ * or as a {@code byte[]} cut into blocks.
+ * @author Nathaniel
+ *
+ */
+
+public interface BlockCrypto {
+
+	/**
+	 * Decrypt a single block
+	 * @param y The block to decrypt
+	 * @return The original block
+	 */
+	public BigInteger decrypt(BigInteger y);
+
+	/**
+	 * Encrypt a single block
+	 * @param x The block to encrypt
+	 * @return The encrypted block
+	 */
+	public BigInteger encrypt(BigInteger x);
+
+	/**
+	 * Decrypt a {@code byte[]} cipher produced by {@link #encrypt(byte[])}
+	 * @param y The cipher to decrypt
+	 * @return The original message
+	 */
+	public byte[] decrypt(byte[] y);
+
+	/**
+	 * Encrypt a {@code byte[]} message of any length
+	 * @param x The message to encrypt
+	 * @return The encrypted cipher
+	 */
+	public byte[] encrypt(byte[] x);
+
+}
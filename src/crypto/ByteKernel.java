@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encrypts/decrypts bytes directly, taking each byte (0 to 255) as the integer it
+ * stands for, as {@code Encoding.ASCII} does for 0 to 127. A kernel is built once per
+ * file from a built-in cipher: a 256-entry table for ciphers that map every symbol on
+ * its own, one 256-entry row per key letter for Vigenere, and the pad itself for the
+ * One Time Pad. Bytes that the cipher could not restore (e.g. bytes not below the
+ * divisor of a Caesar Cipher) are rejected with a {@code RuntimeException}.
+ * @author Nathaniel
+ *
+ */
+
+abstract class ByteKernel {
+
+	/**
+	 * Encrypt/decrypt the bytes of src in [from, to) into the same indices of dst
+	 * @param position The position of {@code from} in the whole message
+	 */
+	abstract void apply(ByteBuffer src, ByteBuffer dst, int from, int to, long position);
+
+	/**
+	 * Get the kernel of a built-in cipher
+	 * @param crypto The {@code Crypto} object
+	 * @param decrypt {@code True} to decrypt; {@code false} to encrypt
+	 * @param length The length of the message, checked against a One Time Pad
+	 * @return The kernel
+	 */
+	static ByteKernel of(Crypto crypto, boolean decrypt, long length){
+		if(crypto instanceof SymbolCrypto){
+			return new Table((SymbolCrypto) crypto, decrypt);
+		}
+		if(crypto instanceof VigenereCrypto){
+			VigenereCrypto vigenere = (VigenereCrypto) crypto;
+			return new Rows(vigenere.getKey(), vigenere.getDivisor(), decrypt);
+		}
+		if(crypto instanceof TableVigenereCrypto){
+			TableVigenereCrypto vigenere = (TableVigenereCrypto) crypto;
+			return new Rows(vigenere.getKey(), vigenere.getDivisor(), decrypt);
+		}
+		if(crypto instanceof OneTimePadCrypto){
+			OneTimePadCrypto otp = (OneTimePadCrypto) crypto;
+			checkDivisor(otp.getDivisor());
+			otp.checkConditions(length, 0);
+			return new Pad(otp.getSource(), otp.getOffset(), otp.getDivisor(), decrypt);
+		}
+		throw new RuntimeException("No byte kernel for " + crypto.getClass().getName());
+	}
+
+	private static void checkDivisor(int divisor){
+		if(divisor <= 0 || divisor > 256){
+			throw new RuntimeException("Illegal divisor " + divisor + ". It must be in [1, 256] for bytes.");
+		}
+	}
+
+	private static RuntimeException illegalByte(int b){
+		return new RuntimeException("Byte " + b + " cannot be encrypted/decrypted by this cipher");
+	}
+
+	private static final class Table extends ByteKernel {
+
+		// The result for each byte, or -1 if the cipher cannot restore it
+		private final int[] table = new int[256];
+
+		Table(SymbolCrypto crypto, boolean decrypt) {
+			for(int b = 0; b < 256; ++b){
+				int r = decrypt ? crypto.decrypt(b) : crypto.encrypt(b);
+				int back = decrypt ? crypto.encrypt(r) : crypto.decrypt(r);
+				this.table[b] = (r >= 0 && r < 256 && back == b) ? r : -1;
+			}
+		}
+
+		@Override
+		void apply(ByteBuffer src, ByteBuffer dst, int from, int to, long position) {
+			int[] t = this.table;
+			for(int i = from; i < to; ++i){
+				int r = t[src.get(i) & 0xFF];
+				if(r < 0){
+					throw illegalByte(src.get(i) & 0xFF);
+				}
+				dst.put(i, (byte) r);
+			}
+		}
+
+	}
+
+	private static final class Rows extends ByteKernel {
+
+		private final int keyLength;
+		// rows[k * 256 + b] is the result for byte b under key letter k
+		private final byte[] rows;
+
+		Rows(int[] key, int divisor, boolean decrypt) {
+			checkDivisor(divisor);
+			this.keyLength = key.length;
+			this.rows = new byte[key.length * 256];
+			for(int k = 0; k < key.length; ++k){
+				for(int b = 0; b < 256; ++b){
+					// Vigenere leaves values outside [0, divisor) as they are
+					int r = b < divisor ? DiscreteMath.mod(decrypt ? b - key[k] : b + key[k], divisor) : b;
+					this.rows[k * 256 + b] = (byte) r;
+				}
+			}
+		}
+
+		@Override
+		void apply(ByteBuffer src, ByteBuffer dst, int from, int to, long position) {
+			byte[] r = this.rows;
+			int end = this.keyLength * 256;
+			int row = (int) DiscreteMath.mod(position, this.keyLength) * 256;
+			for(int i = from; i < to; ++i){
+				dst.put(i, r[row + (src.get(i) & 0xFF)]);
+				row += 256;
+				if(row == end){
+					row = 0;
+				}
+			}
+		}
+
+	}
+
+	private static final class Pad extends ByteKernel {
+
+		// The number of pad values read from the PadSource at a time
+		private static final int PAD_CHUNK = 4096;
+
+		private final PadSource source;
+		private final long offset;
+		private final int divisor;
+		private final boolean decrypt;
+
+		Pad(PadSource source, long offset, int divisor, boolean decrypt) {
+			this.source = source;
+			this.offset = offset;
+			this.divisor = divisor;
+			this.decrypt = decrypt;
+		}
+
+		@Override
+		void apply(ByteBuffer src, ByteBuffer dst, int from, int to, long position) {
+			int n = this.divisor;
+			int[] pad = new int[Math.min(to - from, PAD_CHUNK)];
+			for(int start = from; start < to; start += pad.length){
+				int len = Math.min(pad.length, to - start);
+				this.source.read(this.offset + position + (start - from), pad, 0, len);
+				for(int i = 0; i < len; ++i){
+					int b = src.get(start + i) & 0xFF;
+					if(b >= n){
+						throw illegalByte(b);
+					}
+					int r = this.decrypt ? b - pad[i] : b + pad[i];
+					dst.put(start + i, (byte) DiscreteMath.mod(r, n));
+				}
+			}
+		}
+
+	}
+
+}
@@ -4,42 +4,84 @@
 
 package crypto;
 
-class CaesarCrypto implements Crypto {
+class CaesarCrypto implements SymbolCrypto {
 	
-	private int key;
-	private int divisor;
+	private final int key;
+	private final int divisor;
+	// The key reduced into [0, divisor), for the kernels
+	private final int shift;
 
 	protected CaesarCrypto(int key, int divisor) {
 		this.key = key;
 		this.divisor = divisor;
+		this.shift = divisor > 0 ? DiscreteMath.mod(key, divisor) : 0;
+	}
+
+	int getKey(){
+		return this.key;
+	}
+
+	int getDivisor(){
+		return this.divisor;
 	}
 
 	@Override
 	public int[] decrypt(int[] y) {
 		int[] result = new int[y.length];
-		for(int i = 0; i < result.length; ++i){
-			if(y[i] >= 0 && y[i] <= this.divisor - 1){
-				result[i] = (int) DiscreteMath.mod((y[i] + this.divisor - this.key), this.divisor);
-			}
-			else{
-				result[i] = y[i];
-			}
-		}
+		this.decrypt(y, 0, result, 0, y.length);
 		return result;
 	}
 
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		if(this.divisor > 0){
+			CipherKernels.BEST.shift(src, srcOff, dst, dstOff, len, this.shift, this.divisor);
+			return;
+		}
+		for(int i = 0; i < len; ++i){
+			dst[dstOff + i] = this.decrypt(src[srcOff + i]);
+		}
+	}
+
+	@Override
+	public int decrypt(int y) {
+		if(y >= 0 && y <= this.divisor - 1){
+			// the same as the kernels, which cannot overflow
+			int r = y - this.shift;
+			return r < 0 ? r + this.divisor : r;
+		}
+		else{
+			return y;
+		}
+	}
+
 	@Override
 	public int[] encrypt(int[] x) {
 		int[] result = new int [x.length];
-		for(int i = 0; i < result.length; ++i){
-			if(x[i] >= 0 && x[i] <= this.divisor - 1){
-				result[i] = (int) DiscreteMath.mod((x[i] + this.key), this.divisor);
-			}
-			else{
-				result[i] = x[i];
-			}
-		}
+		this.encrypt(x, 0, result, 0, x.length);
 		return result;
 	}
 
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		if(this.divisor > 0){
+			CipherKernels.BEST.shift(src, srcOff, dst, dstOff, len, this.divisor - this.shift, this.divisor);
+			return;
+		}
+		for(int i = 0; i < len; ++i){
+			dst[dstOff + i] = this.encrypt(src[srcOff + i]);
+		}
+	}
+
+	@Override
+	public int encrypt(int x) {
+		if(x >= 0 && x <= this.divisor - 1){
+			int r = x - (this.divisor - this.shift);
+			return r < 0 ? r + this.divisor : r;
+		}
+		else{
+			return x;
+		}
+	}
+
 }
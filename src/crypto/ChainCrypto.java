@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A chain of ciphers applied one after another: encryption runs the stages in order,
+ * and decryption runs their decryptions in reverse order. {@link #of(Crypto...)}
+ * first folds neighbouring Caesar, Affine and Vigenere stages with the same divisor
+ * into a single stage where the result is again one of these ciphers (e.g. an Affine
+ * Cipher followed by a Caesar Cipher is an Affine Cipher, and a Caesar Cipher followed
+ * by a Vigenere Cipher is a Vigenere Cipher). The folded stage gives the same result
+ * as the original stages for every integer, both ways, including those outside
+ * [0, divisor): Affine reduces such an integer while Caesar leaves it as it is, so a
+ * fold of the two only uses the folded map on [0, divisor) and sends any other
+ * integer through the original stages.
+ * <p>
+ * If every remaining stage is a {@code SymbolCrypto} or a {@code ChunkedCrypto}, the
+ * chain runs tile by tile: a small piece of the message goes through all the stages
+ * while it is in the cache, so the message is read and written only once and no
+ * intermediate array is created. Otherwise each stage runs over the whole message.
+ * @author Nathaniel
+ *
+ */
+
+class ChainCrypto implements Crypto {
+
+	// The number of elements that go through all the stages at a time
+	private static final int TILE = 1024;
+
+	// Vigenere stages are not folded into keys longer than this
+	private static final int FOLD_LIMIT = 1 << 16;
+
+	final Crypto[] stages;
+
+	ChainCrypto(Crypto[] stages) {
+		this.stages = stages;
+	}
+
+	/**
+	 * Get a {@code Crypto} that applies the stages one after another
+	 * @param stages The ciphers, in the order of encryption
+	 * @return A {@code Crypto} object
+	 */
+	static Crypto of(Crypto... stages){
+		if(stages.length == 0){
+			throw new RuntimeException("A chain needs at least one cipher");
+		}
+		List<Crypto> flat = new ArrayList<Crypto>();
+		for(Crypto stage : stages){
+			if(stage instanceof ChainCrypto){
+				flat.addAll(Arrays.asList(((ChainCrypto) stage).stages));
+			}
+			else{
+				flat.add(stage);
+			}
+		}
+		List<Crypto> folded = new ArrayList<Crypto>();
+		Linear pending = null;
+		Crypto pendingStage = null;
+		for(Crypto stage : flat){
+			Linear linear = Linear.of(stage);
+			Linear merged = (pending == null || linear == null) ? null : pending.then(linear);
+			if(merged != null){
+				pending = merged;
+				pendingStage = null;
+				continue;
+			}
+			if(pending != null){
+				folded.add(pendingStage != null ? pendingStage : pending.toCrypto());
+			}
+			pending = linear;
+			pendingStage = stage;
+			if(linear == null){
+				folded.add(stage);
+			}
+		}
+		if(pending != null){
+			folded.add(pendingStage != null ? pendingStage : pending.toCrypto());
+		}
+		if(folded.size() == 1){
+			return folded.get(0);
+		}
+		Crypto[] result = folded.toArray(new Crypto[folded.size()]);
+		for(Crypto stage : result){
+			if(!(stage instanceof SymbolCrypto) && !(stage instanceof ChunkedCrypto)){
+				return new ChainCrypto(result);
+			}
+		}
+		return new Tiled(result);
+	}
+
+	@Override
+	public int[] decrypt(int[] y) {
+		int[] result = new int[y.length];
+		this.decrypt(y, 0, result, 0, y.length);
+		return result;
+	}
+
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		System.arraycopy(src, srcOff, dst, dstOff, len);
+		for(int s = this.stages.length - 1; s >= 0; --s){
+			this.stages[s].decryptInPlace(dst, dstOff, len);
+		}
+	}
+
+	@Override
+	public int[] encrypt(int[] x) {
+		int[] result = new int[x.length];
+		this.encrypt(x, 0, result, 0, x.length);
+		return result;
+	}
+
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		System.arraycopy(src, srcOff, dst, dstOff, len);
+		for(Crypto stage : this.stages){
+			stage.encryptInPlace(dst, dstOff, len);
+		}
+	}
+
+	/**
+	 * A chain of stages that can work on any piece of a message, run tile by tile
+	 */
+	static final class Tiled extends ChainCrypto implements ChunkedCrypto {
+
+		Tiled(Crypto[] stages) {
+			super(stages);
+		}
+
+		@Override
+		public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+			this.decrypt(src, srcOff, dst, dstOff, len, 0);
+		}
+
+		@Override
+		public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+			this.run(src, srcOff, dst, dstOff, len, position, true);
+		}
+
+		@Override
+		public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+			this.encrypt(src, srcOff, dst, dstOff, len, 0);
+		}
+
+		@Override
+		public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+			this.run(src, srcOff, dst, dstOff, len, position, false);
+		}
+
+		@Override
+		public ChunkedCrypto claim(long position, long length){
+			Crypto[] claimed = this.stages.clone();
+			for(int k = 0; k < claimed.length; ++k){
+				if(claimed[k] instanceof ChunkedCrypto){
+					claimed[k] = ((ChunkedCrypto) claimed[k]).claim(position, length);
+				}
+			}
+			return new Tiled(claimed);
+		}
+
+		private void run(int[] src, int srcOff, int[] dst, int dstOff, int len, long position, boolean decrypt){
+			int count = this.stages.length;
+			for(int done = 0; done < len; done += TILE){
+				int n = Math.min(TILE, len - done);
+				int from = srcOff + done;
+				// the first stage reads the source, the others work in place on the destination
+				int[] in = src;
+				for(int k = 0; k < count; ++k){
+					Crypto stage = this.stages[decrypt ? count - 1 - k : k];
+					if(stage instanceof ChunkedCrypto){
+						ChunkedCrypto chunked = (ChunkedCrypto) stage;
+						if(decrypt){
+							chunked.decrypt(in, from, dst, dstOff + done, n, position + done);
+						}
+						else{
+							chunked.encrypt(in, from, dst, dstOff + done, n, position + done);
+						}
+					}
+					else if(decrypt){
+						stage.decrypt(in, from, dst, dstOff + done, n);
+					}
+					else{
+						stage.encrypt(in, from, dst, dstOff + done, n);
+					}
+					in = dst;
+					from = dstOff + done;
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * A stage of the form x -> a[j] * x + b[j] (mod n), where j is the position modulo
+	 * the period. Caesar and Vigenere leave integers outside [0, n) as they are
+	 * ({@code reduces} is false); Affine maps every integer into [0, n). Stages that
+	 * differ in this ({@code mixed} is true) agree with the map on [0, n) only, so
+	 * the original {@code stages} are kept for the integers outside it.
+	 */
+	private static final class Linear {
+
+		final int n;
+		final long[] a;
+		final long[] b;
+		final boolean reduces;
+		final boolean mixed;
+		final Crypto[] stages;
+
+		Linear(int n, long[] a, long[] b, boolean reduces, boolean mixed, Crypto[] stages) {
+			this.n = n;
+			this.a = a;
+			this.b = b;
+			this.reduces = reduces;
+			this.mixed = mixed;
+			this.stages = stages;
+		}
+
+		static Linear of(Crypto stage){
+			if(stage instanceof SubstitutionCrypto){
+				return of(((SubstitutionCrypto) stage).getBase());
+			}
+			if(stage instanceof Folded){
+				Folded folded = (Folded) stage;
+				return new Linear(folded.n, new long[] {folded.encryptA}, new long[] {folded.encryptB}, false, true, folded.stages);
+			}
+			if(stage instanceof CaesarCrypto){
+				CaesarCrypto caesar = (CaesarCrypto) stage;
+				return shifts(new int[] {caesar.getKey()}, caesar.getDivisor(), stage);
+			}
+			if(stage instanceof AffineCrypto){
+				AffineCrypto affine = (AffineCrypto) stage;
+				int n = affine.getDivisor();
+				if(n <= 0){
+					return null;
+				}
+				return new Linear(n, new long[] {DiscreteMath.mod((long) affine.getA(), n)},
+						new long[] {DiscreteMath.mod((long) affine.getB(), n)}, true, false, new Crypto[] {stage});
+			}
+			if(stage instanceof VigenereCrypto){
+				VigenereCrypto vigenere = (VigenereCrypto) stage;
+				return shifts(vigenere.getKey(), vigenere.getDivisor(), stage);
+			}
+			if(stage instanceof TableVigenereCrypto){
+				TableVigenereCrypto vigenere = (TableVigenereCrypto) stage;
+				return shifts(vigenere.getKey(), vigenere.getDivisor(), stage);
+			}
+			return null;
+		}
+
+		private static Linear shifts(int[] key, int n, Crypto stage){
+			if(n <= 0 || key.length == 0){
+				return null;
+			}
+			long[] a = new long[key.length];
+			long[] b = new long[key.length];
+			for(int j = 0; j < key.length; ++j){
+				a[j] = 1;
+				b[j] = DiscreteMath.mod((long) key[j], n);
+			}
+			return new Linear(n, a, b, false, false, new Crypto[] {stage});
+		}
+
+		/**
+		 * Get this stage followed by another one, or null if the result cannot be
+		 * expressed as a built-in cipher
+		 */
+		Linear then(Linear next){
+			if(this.n != next.n){
+				return null;
+			}
+			// An integer outside [0, n) skips a stage that does not reduce but not one
+			// that does: e.g. Affine then Caesar encrypts every integer like an Affine
+			// Cipher, but decrypts 100 by shifting it first. Such a fold is only exact
+			// on [0, n), and is limited to a single position.
+			boolean mixed = this.mixed || next.mixed || this.reduces != next.reduces;
+			int p = this.a.length;
+			int q = next.a.length;
+			long period = (long) p / DiscreteMath.gcd(p, q) * q;
+			if(period > FOLD_LIMIT || (mixed && period != 1)){
+				return null;
+			}
+			long[] a = new long[(int) period];
+			long[] b = new long[(int) period];
+			boolean shiftsOnly = true;
+			for(int j = 0; j < period; ++j){
+				long a1 = this.a[j % p];
+				long b1 = this.b[j % p];
+				long a2 = next.a[j % q];
+				long b2 = next.b[j % q];
+				a[j] = a2 * a1 % this.n;
+				b[j] = (a2 * b1 + b2) % this.n;
+				shiftsOnly &= a[j] == 1;
+			}
+			Crypto[] stages = Arrays.copyOf(this.stages, this.stages.length + next.stages.length);
+			System.arraycopy(next.stages, 0, stages, this.stages.length, next.stages.length);
+			Linear result = new Linear(this.n, a, b, this.reduces && !mixed, mixed, stages);
+			// Affine for a single position; Caesar or Vigenere if every "a" is 1 and nothing is reduced
+			if(period == 1 || (shiftsOnly && !this.reduces && !mixed)){
+				return result;
+			}
+			return null;
+		}
+
+		Crypto toCrypto(){
+			if(this.mixed){
+				Folded folded = new Folded(this.n, this.a[0], this.b[0], this.stages);
+				return this.n <= CryptoFactory.TABLE_THRESHOLD ? new SubstitutionCrypto(folded, this.n) : folded;
+			}
+			if(this.a.length == 1 && this.reduces){
+				return CryptoFactory.affine((int) this.a[0], (int) this.b[0], this.n);
+			}
+			if(this.a.length == 1){
+				return CryptoFactory.caesar((int) this.b[0], this.n);
+			}
+			int[] key = new int[this.b.length];
+			for(int j = 0; j < key.length; ++j){
+				key[j] = (int) this.b[j];
+			}
+			return CryptoFactory.vigenere(key, this.n);
+		}
+
+	}
+
+	/**
+	 * Neighbouring Caesar and Affine stages folded into one map x -> a * x + b (mod n)
+	 * for x in [0, n). An integer outside [0, n) still goes through the original
+	 * stages, since Caesar leaves it as it is while Affine reduces it.
+	 */
+	static final class Folded implements SymbolCrypto {
+
+		private final int n;
+		private final int encryptA;
+		private final int encryptB;
+		private final int decryptA;
+		private final int decryptB;
+		private final Crypto[] stages;
+
+		Folded(int n, long a, long b, Crypto[] stages) {
+			this.n = n;
+			this.encryptA = (int) a;
+			this.encryptB = (int) b;
+			this.decryptA = n == 1 ? 0 : (int) DiscreteMath.modInv(a, n);
+			this.decryptB = (int) DiscreteMath.mod(-(long) this.decryptA * b, n);
+			this.stages = stages;
+		}
+
+		private boolean inRange(int[] a, int off, int len){
+			for(int i = 0; i < len; ++i){
+				int x = a[off + i];
+				if(x < 0 || x >= this.n){
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int[] decrypt(int[] y) {
+			int[] result = new int[y.length];
+			this.decrypt(y, 0, result, 0, y.length);
+			return result;
+		}
+
+		@Override
+		public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+			if(this.inRange(src, srcOff, len)){
+				CipherKernels.BEST.affine(src, srcOff, dst, dstOff, len, this.decryptA, this.decryptB, this.n);
+				return;
+			}
+			for(int i = 0; i < len; ++i){
+				dst[dstOff + i] = this.decrypt(src[srcOff + i]);
+			}
+		}
+
+		@Override
+		public int decrypt(int y) {
+			if(y >= 0 && y < this.n){
+				return (int) (((long) this.decryptA * y + this.decryptB) % this.n);
+			}
+			int[] v = {y};
+			for(int s = this.stages.length - 1; s >= 0; --s){
+				this.stages[s].decryptInPlace(v);
+			}
+			return v[0];
+		}
+
+		@Override
+		public int[] encrypt(int[] x) {
+			int[] result = new int[x.length];
+			this.encrypt(x, 0, result, 0, x.length);
+			return result;
+		}
+
+		@Override
+		public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+			if(this.inRange(src, srcOff, len)){
+				CipherKernels.BEST.affine(src, srcOff, dst, dstOff, len, this.encryptA, this.encryptB, this.n);
+				return;
+			}
+			for(int i = 0; i < len; ++i){
+				dst[dstOff + i] = this.encrypt(src[srcOff + i]);
+			}
+		}
+
+		@Override
+		public int encrypt(int x) {
+			if(x >= 0 && x < this.n){
+				return (int) (((long) this.encryptA * x + this.encryptB) % this.n);
+			}
+			int[] v = {x};
+			for(Crypto stage : this.stages){
+				stage.encryptInPlace(v);
+			}
+			return v[0];
+		}
+
+	}
+
+}
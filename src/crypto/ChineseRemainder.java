@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.math.BigInteger;
+
+/**
+ * Solves systems of congruences x = r[i] (mod m[i]) for a fixed set of pairwise
+ * coprime moduli, with Garner's algorithm. x is built in mixed radix,
+ * x = v[0] + v[1] * m[0] + v[2] * m[0] * m[1] + ..., where each digit v[i] only
+ * needs arithmetic modulo m[i]. The products m[0] * ... * m[j - 1] modulo every
+ * m[i] and their inverses are computed once by the constructor, so a system costs
+ * k^2 / 2 modular multiplications and no inversion. An odd modulus keeps its
+ * constants in Montgomery form, so that no multiplication needs a division.
+ * <p>
+ * {@link #solve(long[])} gives x as a {@code long} if the product of the moduli
+ * fits in one, and {@link #solveBig(long[])} as a {@code BigInteger} otherwise. For
+ * moduli beyond 64 bits, use {@code BigChineseRemainder}.
+ * @author Nathaniel
+ *
+ */
+
+public final class ChineseRemainder {
+
+	private final long[] moduli;
+	// Montgomery arithmetic for each odd modulus; null for an even one
+	private final Montgomery[] montgomery;
+	// prefix[i][j] = m[0] * ... * m[j - 1] (mod m[i]) for j < i, and inverse[i] the
+	// inverse of m[0] * ... * m[i - 1] (mod m[i]); in Montgomery form for an odd m[i]
+	private final long[][] prefix;
+	private final long[] inverse;
+	// The product of the moduli, or -1 if it does not fit in a long
+	private final long modulus;
+	private final BigInteger bigModulus;
+
+	/**
+	 * Prepare the constants for a set of moduli
+	 * @param moduli Positive integers, pairwise coprime
+	 */
+	public ChineseRemainder(long... moduli) {
+		if(moduli.length == 0){
+			throw new RuntimeException("At least one modulus is needed");
+		}
+		int k = moduli.length;
+		this.moduli = moduli.clone();
+		this.montgomery = new Montgomery[k];
+		this.prefix = new long[k][];
+		this.inverse = new long[k];
+		long modulus = 1;
+		BigInteger bigModulus = BigInteger.ONE;
+		for(int i = 0; i < k; ++i){
+			long m = this.moduli[i];
+			if(m <= 0){
+				throw new RuntimeException("Illegal modulus " + m + ". It must be positive.");
+			}
+			if((m & 1) == 1 && m > 1){
+				this.montgomery[i] = new Montgomery(m);
+			}
+			this.prefix[i] = new long[i];
+			long p = 1 % m;
+			for(int j = 0; j < i; ++j){
+				this.prefix[i][j] = this.toForm(i, p);
+				p = DiscreteMath.mulMod(p, this.moduli[j], m);
+			}
+			if(m > 1 && (p == 0 || DiscreteMath.gcd(p, m) != 1)){
+				throw new RuntimeException("Illegal modulus " + m + ". The moduli must be pairwise coprime.");
+			}
+			this.inverse[i] = this.toForm(i, m == 1 ? 0 : DiscreteMath.modInv(p, m));
+			if(modulus >= 0){
+				modulus = Long.MAX_VALUE / modulus < m ? -1 : modulus * m;
+			}
+			bigModulus = bigModulus.multiply(BigInteger.valueOf(m));
+		}
+		this.modulus = modulus;
+		this.bigModulus = bigModulus;
+	}
+
+	private long toForm(int i, long x){
+		return this.montgomery[i] != null ? this.montgomery[i].toMontgomery(x) : x;
+	}
+
+	/**
+	 * x * c (mod m[i]) for x in [0, m[i]) and a constant c kept by {@code toForm}
+	 */
+	private long multiply(int i, long x, long c){
+		if(this.montgomery[i] != null){
+			return this.montgomery[i].multiply(x, c);
+		}
+		return DiscreteMath.mulModReduced(x, c, this.moduli[i]);
+	}
+
+	/**
+	 * Get the product of the moduli
+	 * @return The product, which every solution is reduced by
+	 */
+	public BigInteger getModulus(){
+		return this.bigModulus;
+	}
+
+	/**
+	 * Get the mixed-radix digits of the solution
+	 */
+	private long[] digits(long[] residues){
+		int k = this.moduli.length;
+		if(residues.length != k){
+			throw new RuntimeException("Illegal number of residues " + residues.length + ". It must be " + k + ".");
+		}
+		long[] v = new long[k];
+		for(int i = 0; i < k; ++i){
+			long m = this.moduli[i];
+			// v[0] + v[1] * m[0] + ... + v[i - 1] * m[0] * ... * m[i - 2] (mod m[i])
+			long sum = 0;
+			for(int j = 0; j < i; ++j){
+				long term = this.multiply(i, v[j] % m, this.prefix[i][j]);
+				// sum + term without overflow, as both are in [0, m)
+				sum -= m - term;
+				if(sum < 0){
+					sum += m;
+				}
+			}
+			long d = Math.floorMod(residues[i], m) - sum;
+			if(d < 0){
+				d += m;
+			}
+			v[i] = this.multiply(i, d, this.inverse[i]);
+		}
+		return v;
+	}
+
+	/**
+	 * Solve x = residues[i] (mod moduli[i]) for every i
+	 * @param residues Integers, which could be negative, zero, or positive; one for each modulus
+	 * @return The solution x in [0, product of the moduli)
+	 */
+	public long solve(long[] residues){
+		if(this.modulus < 0){
+			throw new RuntimeException("The product of the moduli does not fit in a long. Use solveBig instead.");
+		}
+		long[] v = this.digits(residues);
+		// Horner's rule; every partial result is below the product of the moduli
+		long x = v[v.length - 1];
+		for(int i = v.length - 2; i >= 0; --i){
+			x = x * this.moduli[i] + v[i];
+		}
+		return x;
+	}
+
+	/**
+	 * Solve x = residues[i] (mod moduli[i]) for every i, for any product of the moduli
+	 * @param residues Integers, which could be negative, zero, or positive; one for each modulus
+	 * @return The solution x in [0, product of the moduli)
+	 */
+	public BigInteger solveBig(long[] residues){
+		long[] v = this.digits(residues);
+		BigInteger x = BigInteger.valueOf(v[v.length - 1]);
+		for(int i = v.length - 2; i >= 0; --i){
+			x = x.multiply(BigInteger.valueOf(this.moduli[i])).add(BigInteger.valueOf(v[i]));
+		}
+		return x;
+	}
+
+}
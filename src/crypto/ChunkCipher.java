@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * Applies a {@code Crypto} to consecutive pieces of one message, keeping track of
+ * how far into the message it is. For a {@code ChunkedCrypto} the result is the
+ * same as transforming the whole message at once. Other {@code Crypto} objects
+ * are called once per piece, which is only equivalent if they do not depend on
+ * the position of each element.
+ * @author Nathaniel
+ *
+ */
+
+final class ChunkCipher {
+
+	/**
+	 * The number of symbols buffered by the stream classes unless told otherwise
+	 */
+	static final int DEFAULT_CHUNK_SIZE = 8192;
+
+	private final Crypto crypto;
+	private final boolean decrypt;
+	private long position;
+
+	ChunkCipher(Crypto crypto, boolean decrypt) {
+		if(crypto == null){
+			throw new NullPointerException("crypto");
+		}
+		this.crypto = crypto;
+		this.decrypt = decrypt;
+	}
+
+	static void checkChunkSize(int chunkSize){
+		if(chunkSize <= 0){
+			throw new RuntimeException("Illegal chunk size " + chunkSize + ". It must be positive.");
+		}
+	}
+
+	/**
+	 * Get the number of symbols a stream should buffer for a {@code Crypto}. A
+	 * {@code ParallelCrypto} only splits pieces longer than its threshold, so it is
+	 * handed at least {@link ParallelCrypto#getPieceSize()} symbols at a time.
+	 * @param crypto The {@code Crypto} object used by the stream
+	 * @param chunkSize The chunk size asked for
+	 * @return The chunk size to use
+	 */
+	static int chunkSize(Crypto crypto, int chunkSize){
+		if(crypto instanceof ParallelCrypto){
+			return Math.max(chunkSize, ((ParallelCrypto) crypto).getPieceSize());
+		}
+		return chunkSize;
+	}
+
+	/**
+	 * Transform the first {@code len} elements of {@code buf} in place
+	 * @param buf The buffer holding the next piece of the message
+	 * @param len The number of elements in the piece
+	 */
+	void apply(int[] buf, int len){
+		if(len == 0){
+			return;
+		}
+		if(this.crypto instanceof ChunkedCrypto){
+			ChunkedCrypto c = (ChunkedCrypto) this.crypto;
+			if(this.decrypt){
+				c.decrypt(buf, 0, buf, 0, len, this.position);
+			}
+			else{
+				c.encrypt(buf, 0, buf, 0, len, this.position);
+			}
+		}
+		else if(this.decrypt){
+			this.crypto.decryptInPlace(buf, 0, len);
+		}
+		else{
+			this.crypto.encryptInPlace(buf, 0, len);
+		}
+		this.position += len;
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * A {@code Crypto} that can transform any contiguous piece of a message on its own,
+ * given the position of that piece within the whole message. Ciphers whose output
+ * depends on the position of each element (e.g. Vigenere, One Time Pad) implement
+ * this so that a message processed piece by piece gives exactly the same result as
+ * a single call to {@link Crypto#encrypt(int[])} or {@link Crypto#decrypt(int[])}.
+ * @author Nathaniel
+ *
+ */
+
+interface ChunkedCrypto extends Crypto {
+
+	/**
+	 * Decrypt {@code len} elements of {@code src} into {@code dst}
+	 * @param src The cipher to decrypt
+	 * @param srcOff The first element of {@code src} to read
+	 * @param dst The array that receives the message
+	 * @param dstOff The first element of {@code dst} to write
+	 * @param len The number of elements
+	 * @param position The position of {@code src[srcOff]} within the whole cipher
+	 */
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position);
+
+	/**
+	 * Encrypt {@code len} elements of {@code src} into {@code dst}
+	 * @param src The message to encrypt
+	 * @param srcOff The first element of {@code src} to read
+	 * @param dst The array that receives the cipher
+	 * @param dstOff The first element of {@code dst} to write
+	 * @param len The number of elements
+	 * @param position The position of {@code src[srcOff]} within the whole message
+	 */
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position);
+
+	/**
+	 * Reserve a range of a message before its pieces are handed out in any order, e.g.
+	 * to the threads of a {@code ForkJoinPool}. A One Time Pad is claimed here for the
+	 * whole range at once, rather than piece by piece; any other cipher is returned as
+	 * it is.
+	 * @param position The position of the first element of the range
+	 * @param length The number of elements in the range
+	 * @return A {@code ChunkedCrypto} for the pieces of the range
+	 */
+	public default ChunkedCrypto claim(long position, long length){
+		return this;
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * The inner loops of the Caesar, Affine, Vigenere and One Time Pad ciphers. There are
+ * two implementations: a scalar one, and one built on the Vector API
+ * ({@code jdk.incubator.vector}) that works on many integers per instruction. The
+ * vector one lives in the separate {@code vector} source folder, since it has to be
+ * compiled with {@code --add-modules jdk.incubator.vector}; it is loaded by name and
+ * used if the module is present at runtime and the system property
+ * {@code crypto.vector} is not {@code false}. Otherwise the scalar one is used.
+ * <p>
+ * Every kernel works on integers modulo n with the keys already reduced into
+ * [0, n), and gives the same results in both implementations.
+ * @author Nathaniel
+ *
+ */
+
+abstract class CipherKernels {
+
+	/**
+	 * The largest number of lanes of a vector; extended keys are padded by this many values
+	 */
+	static final int MAX_LANES = 64;
+
+	/**
+	 * The scalar kernels
+	 */
+	static final CipherKernels SCALAR = new Scalar();
+
+	/**
+	 * The fastest kernels available
+	 */
+	static final CipherKernels BEST = load();
+
+	private static CipherKernels load(){
+		if(!Boolean.parseBoolean(System.getProperty("crypto.vector", "true"))){
+			return SCALAR;
+		}
+		try{
+			return (CipherKernels) Class.forName("crypto.VectorKernelsImpl").getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException | LinkageError e){
+			// the vector source folder was not compiled, or the module is not present
+			return SCALAR;
+		}
+	}
+
+	/**
+	 * Check if these kernels are vectorized
+	 */
+	abstract boolean isVectorized();
+
+	/**
+	 * For every x in [0, n): x -> x - e (mod n), with e in [0, n]; other integers are left as they are.
+	 * Caesar encryption is e = n - key, decryption e = key.
+	 */
+	abstract void shift(int[] src, int srcOff, int[] dst, int dstOff, int len, int e, int n);
+
+	/**
+	 * Like {@code shift}, with e taken in turn from a key of length {@code period},
+	 * starting at index {@code start}. The key is given extended by {@code extend}.
+	 */
+	abstract void shifts(int[] src, int srcOff, int[] dst, int dstOff, int len, int[] e, int period, int start, int n);
+
+	/**
+	 * For every x: x -> a * x + b (mod n), with a and b in [0, n)
+	 */
+	abstract void affine(int[] src, int srcOff, int[] dst, int dstOff, int len, int a, int b, int n);
+
+	/**
+	 * For every x: x -> x + pad (mod n), or x - pad (mod n) to decrypt, with the pad
+	 * values taken from {@code pad} starting at {@code padOff}
+	 */
+	abstract void pad(int[] src, int srcOff, int[] pad, int padOff, int[] dst, int dstOff, int len, boolean decrypt, int n);
+
+	/**
+	 * Repeat a key to {@code key.length + MAX_LANES} values, so that a vector of key
+	 * values can be loaded from any index below {@code key.length} in one step
+	 */
+	static int[] extend(int[] key){
+		int[] result = new int[key.length + MAX_LANES];
+		for(int i = 0; i < result.length; ++i){
+			result[i] = key[i % key.length];
+		}
+		return result;
+	}
+
+	private static final class Scalar extends CipherKernels {
+
+		@Override
+		boolean isVectorized() {
+			return false;
+		}
+
+		@Override
+		void shift(int[] src, int srcOff, int[] dst, int dstOff, int len, int e, int n) {
+			for(int i = 0; i < len; ++i){
+				int x = src[srcOff + i];
+				if(x >= 0 && x < n){
+					int r = x - e;
+					dst[dstOff + i] = r < 0 ? r + n : r;
+				}
+				else{
+					dst[dstOff + i] = x;
+				}
+			}
+		}
+
+		@Override
+		void shifts(int[] src, int srcOff, int[] dst, int dstOff, int len, int[] e, int period, int start, int n) {
+			int j = start;
+			for(int i = 0; i < len; ++i){
+				int x = src[srcOff + i];
+				if(x >= 0 && x < n){
+					int r = x - e[j];
+					dst[dstOff + i] = r < 0 ? r + n : r;
+				}
+				else{
+					dst[dstOff + i] = x;
+				}
+				if(++j == period){
+					j = 0;
+				}
+			}
+		}
+
+		@Override
+		void affine(int[] src, int srcOff, int[] dst, int dstOff, int len, int a, int b, int n) {
+			for(int i = 0; i < len; ++i){
+				dst[dstOff + i] = (int) DiscreteMath.mod((long) a * src[srcOff + i] + b, n);
+			}
+		}
+
+		@Override
+		void pad(int[] src, int srcOff, int[] pad, int padOff, int[] dst, int dstOff, int len, boolean decrypt, int n) {
+			for(int i = 0; i < len; ++i){
+				long x = src[srcOff + i];
+				long p = pad[padOff + i];
+				dst[dstOff + i] = (int) DiscreteMath.mod(decrypt ? x - p : x + p, n);
+			}
+		}
+
+	}
+
+}
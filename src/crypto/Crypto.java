@@ -4,9 +4,16 @@
 
 package crypto;
 
+import java.util.Arrays;
+
 /**
  * The {@code Crypto} interface defines the ability of any implementing class
  * to encrypt/decrypt an {@code int[]} object.
+ * <p>
+ * The built-in ciphers are immutable once created (apart from caches that always
+ * hold the same values), so one instance can be shared by any number of threads.
+ * The exception is the One Time Pad, whose instances can each encrypt/decrypt a
+ * single message; see {@code OneTimePad} for handing out pads to many threads.
  * @author Nathaniel
  *
  */
@@ -26,5 +33,73 @@ public interface Crypto {
 	 * @return The original message
 	 */
 	public int[] encrypt(int[] x);
+	
+	/**
+	 * Decrypt {@code len} elements of {@code src} into a caller-supplied array.
+	 * {@code src} and {@code dst} may be the same array. The default implementation
+	 * copies the elements and calls {@link #decrypt(int[])}; the built-in ciphers
+	 * override it so that no array is allocated.
+	 * @param src The cipher to decrypt
+	 * @param srcOff The first element of {@code src} to read
+	 * @param dst The array that receives the original message
+	 * @param dstOff The first element of {@code dst} to write
+	 * @param len The number of elements
+	 */
+	public default void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len){
+		int[] result = this.decrypt(Arrays.copyOfRange(src, srcOff, srcOff + len));
+		System.arraycopy(result, 0, dst, dstOff, len);
+	}
+	
+	/**
+	 * Encrypt {@code len} elements of {@code src} into a caller-supplied array.
+	 * {@code src} and {@code dst} may be the same array. The default implementation
+	 * copies the elements and calls {@link #encrypt(int[])}; the built-in ciphers
+	 * override it so that no array is allocated.
+	 * @param src The message to encrypt
+	 * @param srcOff The first element of {@code src} to read
+	 * @param dst The array that receives the encrypted cipher
+	 * @param dstOff The first element of {@code dst} to write
+	 * @param len The number of elements
+	 */
+	public default void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len){
+		int[] result = this.encrypt(Arrays.copyOfRange(src, srcOff, srcOff + len));
+		System.arraycopy(result, 0, dst, dstOff, len);
+	}
+	
+	/**
+	 * Decrypt an {@code int[]} object cipher in place
+	 * @param a The cipher to decrypt, overwritten with the original message
+	 */
+	public default void decryptInPlace(int[] a){
+		this.decrypt(a, 0, a, 0, a.length);
+	}
+	
+	/**
+	 * Decrypt part of an {@code int[]} object cipher in place
+	 * @param a The array holding the cipher, overwritten with the original message
+	 * @param off The first element to decrypt
+	 * @param len The number of elements
+	 */
+	public default void decryptInPlace(int[] a, int off, int len){
+		this.decrypt(a, off, a, off, len);
+	}
+	
+	/**
+	 * Encrypt an {@code int[]} object message in place
+	 * @param a The message to encrypt, overwritten with the encrypted cipher
+	 */
+	public default void encryptInPlace(int[] a){
+		this.encrypt(a, 0, a, 0, a.length);
+	}
+	
+	/**
+	 * Encrypt part of an {@code int[]} object message in place
+	 * @param a The array holding the message, overwritten with the encrypted cipher
+	 * @param off The first element to encrypt
+	 * @param len The number of elements
+	 */
+	public default void encryptInPlace(int[] a, int off, int len){
+		this.encrypt(a, off, a, off, len);
+	}
 
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of the ciphers built by {@code CryptoFactory}, keyed by the
+ * kind of cipher and its parameters. The least recently used cipher is dropped when
+ * the cache is full. Only immutable ciphers are cached, so one instance can be
+ * handed to every caller. The cache is off while its capacity is 0.
+ * <p>
+ * The ciphers are built outside the lock: two threads that miss on the same key at
+ * once may both build it, and the second one gets the instance stored by the first.
+ * @author Nathaniel
+ *
+ */
+
+final class CryptoCache {
+
+	private volatile int capacity;
+	private final LinkedHashMap<Key, Object> map;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	CryptoCache(int capacity) {
+		checkCapacity(capacity);
+		this.capacity = capacity;
+		this.map = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+				return this.size() > CryptoCache.this.capacity;
+			}
+
+		};
+	}
+
+	int getCapacity(){
+		return this.capacity;
+	}
+
+	/**
+	 * Check if the cache is on, so that callers can skip building a key (which boxes
+	 * its parameters) when it is not
+	 */
+	boolean isEnabled(){
+		return this.capacity != 0;
+	}
+
+	void setCapacity(int capacity){
+		checkCapacity(capacity);
+		synchronized(this.map){
+			this.capacity = capacity;
+			// the first keys are the least recently used
+			while(this.map.size() > capacity){
+				this.map.remove(this.map.keySet().iterator().next());
+			}
+		}
+	}
+
+	private static void checkCapacity(int capacity){
+		if(capacity < 0){
+			throw new RuntimeException("Illegal capacity " + capacity + ". It must be non-negative.");
+		}
+	}
+
+	/**
+	 * Get the key of a cipher
+	 * @param type The kind of cipher
+	 * @param params Its parameters; {@code int[]} parameters are copied and compared by content
+	 * @return The key, or null if the cache is off
+	 */
+	Key key(String type, Object... params){
+		if(this.capacity == 0){
+			return null;
+		}
+		for(int i = 0; i < params.length; ++i){
+			if(params[i] instanceof int[]){
+				params[i] = ((int[]) params[i]).clone();
+			}
+		}
+		return new Key(type, params);
+	}
+
+	/**
+	 * Get a cached cipher
+	 * @param key The key given by {@link #key(String, Object...)}
+	 * @return The cipher, or null if it is not cached (or the key is null)
+	 */
+	Object get(Key key){
+		if(key == null){
+			return null;
+		}
+		Object value;
+		synchronized(this.map){
+			value = this.map.get(key);
+		}
+		if(value != null){
+			this.hits.increment();
+		}
+		else{
+			this.misses.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Store a cipher that was just built
+	 * @param key The key given by {@link #key(String, Object...)}
+	 * @param value The cipher
+	 * @return The cipher stored under the key, which is {@code value} unless another thread stored one first
+	 */
+	<T> T put(Key key, T value){
+		if(key == null || this.capacity == 0){
+			return value;
+		}
+		synchronized(this.map){
+			Object previous = this.map.get(key);
+			if(previous != null){
+				// a key always gives the same kind of cipher
+				@SuppressWarnings("unchecked")
+				T result = (T) previous;
+				return result;
+			}
+			this.map.put(key, value);
+		}
+		return value;
+	}
+
+	long getHits(){
+		return this.hits.sum();
+	}
+
+	long getMisses(){
+		return this.misses.sum();
+	}
+
+	void clear(){
+		synchronized(this.map){
+			this.map.clear();
+		}
+		this.hits.reset();
+		this.misses.reset();
+	}
+
+	static final class Key {
+
+		private final String type;
+		private final Object[] params;
+		private final int hash;
+
+		Key(String type, Object[] params) {
+			this.type = type;
+			this.params = params;
+			this.hash = 31 * type.hashCode() + Arrays.deepHashCode(params);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if(o == this){
+				return true;
+			}
+			else if(!(o instanceof Key)){
+				return false;
+			}
+			Key other = (Key) o;
+			return this.hash == other.hash && this.type.equals(other.type) && Arrays.deepEquals(this.params, other.params);
+		}
+
+		@Override
+		public int hashCode(){
+			return this.hash;
+		}
+
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for one call measured by {@code CryptoMetrics}, so that
+ * the time spent in ciphers and encodings can be lined up with garbage collections
+ * and other events of the recording. The event is disabled unless a recording turns
+ * on {@code crypto.Operation}.
+ * @author Nathaniel
+ *
+ */
+
+@Name("crypto.Operation")
+@Label("Crypto Operation")
+@Category("Crypto")
+@Description("A call to an instrumented cipher, or one step of Encoding")
+@StackTrace(false)
+final class CryptoEvent extends Event {
+
+	@Label("Name")
+	String name;
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Symbols")
+	long symbols;
+
+	@Label("Allocated")
+	@DataAmount
+	long allocated;
+
+	// Where the call started, for CryptoMetrics; not part of the recording
+	transient long startNanos;
+	transient long startBytes;
+
+}
@@ -4,6 +4,9 @@
 
 package crypto;
 
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * The {@code CryptoFactory} class is a static factory to generate built-in 
  * {@code Crypto} objects, including Caesar, Affine, Vigenere, RSA, and One Time Pad.
@@ -13,6 +16,30 @@ package crypto;
 
 public class CryptoFactory {
 
+	/**
+	 * Ciphers with a divisor up to this value are backed by precomputed lookup tables
+	 */
+	public static final int TABLE_THRESHOLD = 4096;
+	
+	private static final int VIGENERE_TABLE_LIMIT = 1 << 16;
+	
+	/**
+	 * The default number of elements processed by a single thread of {@link #parallel(Crypto)}
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 15;
+	
+	/**
+	 * The default capacity of the cache of ciphers, read from the system property
+	 * {@code crypto.cacheCapacity}; 0 (no cache) if it is not set
+	 */
+	public static final int DEFAULT_CACHE_CAPACITY = Integer.getInteger("crypto.cacheCapacity", 0);
+	
+	private static final CryptoCache CACHE = new CryptoCache(DEFAULT_CACHE_CAPACITY);
+	
+	private static boolean useTable(int divisor){
+		return divisor > 0 && divisor <= TABLE_THRESHOLD;
+	}
+	
 	/**
 	 * Get a built-in {@code Crypto} for Affine Cipher
 	 * @param a One of the parameters that define the Affine Cipher
@@ -21,7 +48,20 @@ public class CryptoFactory {
 	 * @return A {@code Crypto} object
 	 */
 	public static Crypto affine(int a, int b, int divisor){
-		return new AffineCrypto(a, b, divisor);
+		if(!CACHE.isEnabled()){
+			return newAffine(a, b, divisor);
+		}
+		CryptoCache.Key key = CACHE.key("affine", a, b, divisor);
+		Crypto cached = (Crypto) CACHE.get(key);
+		if(cached != null){
+			return cached;
+		}
+		return CACHE.put(key, newAffine(a, b, divisor));
+	}
+	
+	private static Crypto newAffine(int a, int b, int divisor){
+		AffineCrypto affine = new AffineCrypto(a, b, divisor);
+		return useTable(divisor) ? new SubstitutionCrypto(affine, divisor) : affine;
 	}
 	
 	/**
@@ -31,7 +71,20 @@ public class CryptoFactory {
 	 * @return A {@code Crypto} object
 	 */
 	public static Crypto caesar(int key, int divisor){
-		return new CaesarCrypto(key, divisor);
+		if(!CACHE.isEnabled()){
+			return newCaesar(key, divisor);
+		}
+		CryptoCache.Key cacheKey = CACHE.key("caesar", key, divisor);
+		Crypto cached = (Crypto) CACHE.get(cacheKey);
+		if(cached != null){
+			return cached;
+		}
+		return CACHE.put(cacheKey, newCaesar(key, divisor));
+	}
+	
+	private static Crypto newCaesar(int key, int divisor){
+		CaesarCrypto caesar = new CaesarCrypto(key, divisor);
+		return useTable(divisor) ? new SubstitutionCrypto(caesar, divisor) : caesar;
 	}
 	
 	/**
@@ -41,6 +94,21 @@ public class CryptoFactory {
 	 * @return A {@code Crypto} object
 	 */
 	public static Crypto vigenere(int[] key, int divisor){
+		if(!CACHE.isEnabled()){
+			return newVigenere(key, divisor);
+		}
+		CryptoCache.Key cacheKey = CACHE.key("vigenere", key, divisor);
+		Crypto cached = (Crypto) CACHE.get(cacheKey);
+		if(cached != null){
+			return cached;
+		}
+		return CACHE.put(cacheKey, newVigenere(key, divisor));
+	}
+	
+	private static Crypto newVigenere(int[] key, int divisor){
+		if(useTable(divisor) && key.length > 0 && key.length <= VIGENERE_TABLE_LIMIT / divisor){
+			return new TableVigenereCrypto(key, divisor);
+		}
 		return new VigenereCrypto(key, divisor);
 	}
 	
@@ -52,7 +120,35 @@ public class CryptoFactory {
 	 * @return A {@code Crypto} object
 	 */
 	public static Crypto rsa(long p, long q, long e){
-		return new RSACrypto(p, q, e);
+		if(!CACHE.isEnabled()){
+			return new RSACrypto(p, q, e);
+		}
+		CryptoCache.Key key = CACHE.key("rsa", p, q, e);
+		Crypto cached = (Crypto) CACHE.get(key);
+		if(cached != null){
+			return cached;
+		}
+		return CACHE.put(key, new RSACrypto(p, q, e));
+	}
+	
+	/**
+	 * Get a built-in {@code BlockCrypto} for RSA cryptosystems with keys of any size
+	 * (e.g. 2048 or 4096-bit moduli). Decryption uses the Chinese Remainder Theorem.
+	 * @param p A large prime
+	 * @param q Another large prime
+	 * @param e The public key
+	 * @return A {@code BlockCrypto} object
+	 */
+	public static BlockCrypto rsa(BigInteger p, BigInteger q, BigInteger e){
+		if(!CACHE.isEnabled()){
+			return new BigRSACrypto(p, q, e);
+		}
+		CryptoCache.Key key = CACHE.key("bigRsa", p, q, e);
+		BlockCrypto cached = (BlockCrypto) CACHE.get(key);
+		if(cached != null){
+			return cached;
+		}
+		return CACHE.put(key, new BigRSACrypto(p, q, e));
 	}
 	
 	/**
@@ -67,6 +163,115 @@ public class CryptoFactory {
 		return new OneTimePadCrypto(pad, divisor);
 	}
 	
+	/**
+	 * Get a built-in {@code Crypto} for One Time Pad Cipher whose pad comes from a
+	 * {@code PadSource} (e.g. a memory-mapped file), so it does not have to fit in memory.
+	 * This object can only be used for once. To split one pad between many messages,
+	 * use {@code OneTimePad}.
+	 * @param pad The One Time Pad used to perform the encryption/decryption
+	 * @param divisor The "n" in "x mod n", used in the modulus operation
+	 * @return A {@code Crypto} object
+	 */
+	public static Crypto oneTimePad(PadSource pad, int divisor){
+		return new OneTimePadCrypto(pad, divisor);
+	}
+	
+	/**
+	 * Get a {@code Crypto} that encrypts/decrypts large arrays in parallel on the
+	 * common {@code ForkJoinPool}, splitting them into pieces of at most
+	 * {@code PARALLEL_THRESHOLD} elements
+	 * @param crypto The {@code Crypto} that does the actual work
+	 * @return A {@code Crypto} object
+	 */
+	public static Crypto parallel(Crypto crypto){
+		return parallel(crypto, PARALLEL_THRESHOLD);
+	}
+	
+	/**
+	 * Get a {@code Crypto} that encrypts/decrypts large arrays in parallel on the
+	 * common {@code ForkJoinPool}. Arrays of up to {@code threshold} elements are
+	 * processed on the calling thread. Ciphers that may depend on positions in ways
+	 * the pieces cannot be told about are returned as they are, and so are always
+	 * processed on the calling thread.
+	 * @param crypto The {@code Crypto} that does the actual work
+	 * @param threshold The largest number of elements processed by a single thread
+	 * @return A {@code Crypto} object
+	 */
+	public static Crypto parallel(Crypto crypto, int threshold){
+		return ParallelCrypto.of(crypto, threshold, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Get a {@code Crypto} that encrypts with each of the given ciphers in turn, and
+	 * decrypts with them in reverse order. Neighbouring Caesar, Affine and Vigenere
+	 * ciphers with the same divisor are folded into one cipher where possible (e.g.
+	 * Affine then Caesar is another Affine Cipher), and the rest run over the message
+	 * in a single pass without intermediate arrays.
+	 * @param stages The ciphers, in the order of encryption
+	 * @return A {@code Crypto} object
+	 */
+	public static Crypto chain(Crypto... stages){
+		return ChainCrypto.of(stages);
+	}
+	
+	/**
+	 * Get a {@code Crypto} that records the calls, symbols, time, allocations and
+	 * latency of another {@code Crypto} under a name, while {@code CryptoMetrics} is
+	 * enabled. Read the results with {@link CryptoMetrics#snapshot()}; ciphers given
+	 * the same name share their counters.
+	 * @param crypto The {@code Crypto} that does the actual work
+	 * @param name The name of the counters, e.g. "caesar"
+	 * @return A {@code Crypto} object
+	 */
+	public static Crypto instrument(Crypto crypto, String name){
+		return InstrumentedCrypto.of(crypto, name);
+	}
+	
+	/**
+	 * Set the number of ciphers kept by the cache of this factory. While it is
+	 * positive, {@code affine}, {@code caesar}, {@code vigenere} and {@code rsa} return
+	 * the same shared instance for the same parameters, instead of building the cipher
+	 * (and e.g. computing its modular inverse) again; the least recently used cipher is
+	 * dropped once the cache is full. One Time Pads, which can only be used once, and
+	 * the ciphers made by {@code parallel}, {@code chain} and {@code instrument} are
+	 * never cached. The capacity is {@code DEFAULT_CACHE_CAPACITY} to begin with.
+	 * @param capacity The largest number of cached ciphers, or 0 to turn the cache off
+	 */
+	public static void setCacheCapacity(int capacity){
+		CACHE.setCapacity(capacity);
+	}
+	
+	/**
+	 * Get the number of ciphers kept by the cache of this factory
+	 * @return The capacity of the cache; 0 if it is off
+	 */
+	public static int getCacheCapacity(){
+		return CACHE.getCapacity();
+	}
+	
+	/**
+	 * Get the number of calls that found their cipher in the cache
+	 * @return The number of hits since the cache was last cleared
+	 */
+	public static long getCacheHits(){
+		return CACHE.getHits();
+	}
+	
+	/**
+	 * Get the number of calls that had to build their cipher while the cache was on
+	 * @return The number of misses since the cache was last cleared
+	 */
+	public static long getCacheMisses(){
+		return CACHE.getMisses();
+	}
+	
+	/**
+	 * Drop every cached cipher and set the hit and miss counters back to 0
+	 */
+	public static void clearCache(){
+		CACHE.clear();
+	}
+	
 	private CryptoFactory() {
 		
 	}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@code InputStream} that encrypts/decrypts the bytes read from another
+ * {@code InputStream} with an {@code Encoding} and a {@code Crypto} object. Every byte
+ * is treated as the character with the same value (0 to 255), so every character
+ * produced by the {@code Encoding} must also fit in a byte. Bytes are processed in
+ * fixed-size chunks, so the message never has to be held in memory as a whole.
+ * @author Nathaniel
+ *
+ */
+
+public class CryptoInputStream extends InputStream {
+
+	private final InputStream in;
+	private final Encoding encoding;
+	private final ChunkCipher cipher;
+	private final byte[] bytes;
+	private final int[] ints;
+	private int pos;
+	private int limit;
+	private boolean closed;
+
+	/**
+	 * Create a {@code CryptoInputStream} with the default chunk size
+	 * @param in The {@code InputStream} to read the original bytes from
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the bytes read; {@code false} to encrypt them
+	 */
+	public CryptoInputStream(InputStream in, Encoding encoding, Crypto crypto, boolean decrypt) {
+		this(in, encoding, crypto, decrypt, ChunkCipher.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a {@code CryptoInputStream}
+	 * @param in The {@code InputStream} to read the original bytes from
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the bytes read; {@code false} to encrypt them
+	 * @param chunkSize The maximum number of bytes read and processed at a time. A {@code Crypto}
+	 * from {@code CryptoFactory.parallel} is given more, so that its pieces can be split
+	 */
+	public CryptoInputStream(InputStream in, Encoding encoding, Crypto crypto, boolean decrypt, int chunkSize) {
+		ChunkCipher.checkChunkSize(chunkSize);
+		this.in = in;
+		this.encoding = encoding;
+		this.cipher = new ChunkCipher(crypto, decrypt);
+		int size = ChunkCipher.chunkSize(crypto, chunkSize);
+		this.bytes = new byte[size];
+		this.ints = new int[size];
+	}
+
+	private boolean fill() throws IOException {
+		if(this.closed){
+			throw new IOException("Stream closed");
+		}
+		while(this.pos == this.limit){
+			int n = this.in.read(this.bytes, 0, this.bytes.length);
+			if(n < 0){
+				return false;
+			}
+			this.encoding.decode(this.bytes, 0, this.ints, 0, n);
+			this.cipher.apply(this.ints, n);
+			this.encoding.encode(this.ints, 0, this.bytes, 0, n);
+			this.pos = 0;
+			this.limit = n;
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if(!this.fill()){
+			return -1;
+		}
+		return this.bytes[this.pos++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(len == 0){
+			return 0;
+		}
+		if(!this.fill()){
+			return -1;
+		}
+		int n = Math.min(len, this.limit - this.pos);
+		System.arraycopy(this.bytes, this.pos, b, off, n);
+		this.pos += n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.limit - this.pos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.closed = true;
+		this.in.close();
+	}
+
+}
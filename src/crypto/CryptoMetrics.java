@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the calls to an instrumented cipher (see
+ * {@link CryptoFactory#instrument(Crypto, String)}) or to a step of {@code Encoding}:
+ * the number of calls, the symbols processed, the time and bytes allocated, and a
+ * histogram of the latency of each call. The counters are {@code LongAdder}s, so
+ * threads that record at the same time hardly ever touch the same memory. Every
+ * call is also sent to JDK Flight Recorder as a {@code crypto.Operation} event.
+ * <p>
+ * Instrumentation is off unless the system property {@code crypto.metrics} is
+ * {@code true} or {@link #setEnabled(boolean)} turns it on. While it is off, an
+ * instrumented call costs a single read of a {@code volatile} field.
+ * {@link #snapshot()} returns the counters of every name, e.g. to be scraped by a
+ * monitoring system.
+ * @author Nathaniel
+ *
+ */
+
+public final class CryptoMetrics {
+
+	/**
+	 * The number of buckets of the latency histograms; bucket i counts the calls that
+	 * took at least 2^(i-1) and less than 2^i nanoseconds (bucket 0 those that took 0)
+	 */
+	public static final int BUCKETS = 64;
+
+	private static volatile boolean enabled = Boolean.getBoolean("crypto.metrics");
+
+	private static final ConcurrentMap<String, CryptoMetrics> REGISTRY = new ConcurrentHashMap<String, CryptoMetrics>();
+
+	private static final com.sun.management.ThreadMXBean ALLOCATION;
+
+	static{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocation = null;
+		if(bean instanceof com.sun.management.ThreadMXBean){
+			allocation = (com.sun.management.ThreadMXBean) bean;
+			if(!allocation.isThreadAllocatedMemorySupported() || !allocation.isThreadAllocatedMemoryEnabled()){
+				allocation = null;
+			}
+		}
+		ALLOCATION = allocation;
+	}
+
+	private final String name;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder symbols = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+	private final LongAdder allocated = new LongAdder();
+	private final LongAdder[] latency = new LongAdder[BUCKETS];
+
+	private CryptoMetrics(String name) {
+		this.name = name;
+		for(int i = 0; i < BUCKETS; ++i){
+			this.latency[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Check if instrumentation is on
+	 * @return true if calls are being recorded
+	 */
+	public static boolean isEnabled(){
+		return enabled;
+	}
+
+	/**
+	 * Turn instrumentation on or off. Calls that are running keep the setting they
+	 * started with.
+	 * @param on true to record calls
+	 */
+	public static void setEnabled(boolean on){
+		enabled = on;
+	}
+
+	/**
+	 * Get the counters of the given name, created empty on first use
+	 * @param name The name of a cipher or an {@code Encoding} step
+	 * @return The {@code CryptoMetrics} object
+	 */
+	static CryptoMetrics of(String name){
+		CryptoMetrics metrics = REGISTRY.get(name);
+		if(metrics == null){
+			CryptoMetrics created = new CryptoMetrics(name);
+			metrics = REGISTRY.putIfAbsent(name, created);
+			if(metrics == null){
+				metrics = created;
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Get a copy of the counters of every name. Counters that are being updated while
+	 * the copy is made may be off by the calls in progress.
+	 * @return The snapshots, by name
+	 */
+	public static Map<String, Snapshot> snapshot(){
+		Map<String, Snapshot> result = new TreeMap<String, Snapshot>();
+		for(CryptoMetrics metrics : REGISTRY.values()){
+			result.put(metrics.name, metrics.snapshotOne());
+		}
+		return result;
+	}
+
+	/**
+	 * Set every counter back to 0
+	 */
+	public static void reset(){
+		for(CryptoMetrics metrics : REGISTRY.values()){
+			metrics.calls.reset();
+			metrics.symbols.reset();
+			metrics.nanos.reset();
+			metrics.allocated.reset();
+			for(LongAdder bucket : metrics.latency){
+				bucket.reset();
+			}
+		}
+	}
+
+	/**
+	 * Start measuring a call; pass the result to {@link #end(CryptoEvent, String, long)}
+	 * when the call returns
+	 */
+	CryptoEvent begin(){
+		CryptoEvent event = new CryptoEvent();
+		event.startBytes = allocatedBytes();
+		event.startNanos = System.nanoTime();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Finish measuring a call started by {@link #begin()}, record it and send it to
+	 * Flight Recorder
+	 */
+	void end(CryptoEvent event, String operation, long symbols){
+		event.end();
+		long elapsed = System.nanoTime() - event.startNanos;
+		long bytes = allocatedBytes() - event.startBytes;
+		this.calls.increment();
+		this.symbols.add(symbols);
+		this.nanos.add(elapsed);
+		this.allocated.add(bytes);
+		this.latency[64 - Long.numberOfLeadingZeros(Math.max(elapsed, 0))].increment();
+		if(event.shouldCommit()){
+			event.name = this.name;
+			event.operation = operation;
+			event.symbols = symbols;
+			event.allocated = bytes;
+			event.commit();
+		}
+	}
+
+	private static long allocatedBytes(){
+		return ALLOCATION == null ? 0 : ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private Snapshot snapshotOne(){
+		long[] histogram = new long[BUCKETS];
+		for(int i = 0; i < BUCKETS; ++i){
+			histogram[i] = this.latency[i].sum();
+		}
+		return new Snapshot(this.name, this.calls.sum(), this.symbols.sum(), this.nanos.sum(), this.allocated.sum(), histogram);
+	}
+
+	/**
+	 * The counters of one name at one moment
+	 */
+	public static final class Snapshot {
+
+		private final String name;
+		private final long calls;
+		private final long symbols;
+		private final long nanos;
+		private final long allocatedBytes;
+		private final long[] latency;
+
+		Snapshot(String name, long calls, long symbols, long nanos, long allocatedBytes, long[] latency) {
+			this.name = name;
+			this.calls = calls;
+			this.symbols = symbols;
+			this.nanos = nanos;
+			this.allocatedBytes = allocatedBytes;
+			this.latency = latency;
+		}
+
+		/**
+		 * Get the name of the cipher or {@code Encoding} step
+		 * @return The name
+		 */
+		public String getName(){
+			return this.name;
+		}
+
+		/**
+		 * Get the number of calls
+		 * @return The number of calls
+		 */
+		public long getCalls(){
+			return this.calls;
+		}
+
+		/**
+		 * Get the number of symbols processed by all calls
+		 * @return The number of symbols
+		 */
+		public long getSymbols(){
+			return this.symbols;
+		}
+
+		/**
+		 * Get the time spent in all calls
+		 * @return The time in nanoseconds
+		 */
+		public long getNanos(){
+			return this.nanos;
+		}
+
+		/**
+		 * Get the bytes allocated by all calls, or 0 if the JVM cannot measure them
+		 * @return The number of bytes
+		 */
+		public long getAllocatedBytes(){
+			return this.allocatedBytes;
+		}
+
+		/**
+		 * Get the latency histogram; bucket i counts the calls that took at least
+		 * 2^(i-1) and less than 2^i nanoseconds
+		 * @return A copy of the {@code BUCKETS} counts
+		 */
+		public long[] getLatencyHistogram(){
+			return this.latency.clone();
+		}
+
+		/**
+		 * Get an upper bound of a percentile of the latency, within a factor of 2
+		 * @param percentile The percentile, in [0, 100]
+		 * @return The upper bound of the bucket that holds the percentile, in nanoseconds, or 0 if there are no calls
+		 */
+		public long getLatencyPercentile(double percentile){
+			if(percentile < 0 || percentile > 100){
+				throw new RuntimeException("Illegal percentile " + percentile + ". It must be in [0, 100].");
+			}
+			long rank = (long) Math.ceil(this.calls * percentile / 100);
+			long seen = 0;
+			for(int i = 0; i < BUCKETS; ++i){
+				seen += this.latency[i];
+				if(seen >= rank && seen > 0){
+					return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString(){
+			return this.name + " calls=" + this.calls + " symbols=" + this.symbols + " nanos=" + this.nanos
+					+ " allocatedBytes=" + this.allocatedBytes + " p50=" + this.getLatencyPercentile(50)
+					+ " p99=" + this.getLatencyPercentile(99);
+		}
+
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@code OutputStream} that encrypts/decrypts the bytes written to it with an
+ * {@code Encoding} and a {@code Crypto} object, and passes the result on to another
+ * {@code OutputStream}. Every byte is treated as the character with the same value
+ * (0 to 255), so every character produced by the {@code Encoding} must also fit in a
+ * byte. Bytes are processed in fixed-size chunks, so the message never has to be held
+ * in memory as a whole.
+ * @author Nathaniel
+ *
+ */
+
+public class CryptoOutputStream extends OutputStream {
+
+	private final OutputStream out;
+	private final Encoding encoding;
+	private final ChunkCipher cipher;
+	private final byte[] bytes;
+	private final int[] ints;
+	private int count;
+	private boolean closed;
+
+	/**
+	 * Create a {@code CryptoOutputStream} with the default chunk size
+	 * @param out The {@code OutputStream} that receives the result
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the bytes written; {@code false} to encrypt them
+	 */
+	public CryptoOutputStream(OutputStream out, Encoding encoding, Crypto crypto, boolean decrypt) {
+		this(out, encoding, crypto, decrypt, ChunkCipher.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a {@code CryptoOutputStream}
+	 * @param out The {@code OutputStream} that receives the result
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the bytes written; {@code false} to encrypt them
+	 * @param chunkSize The number of bytes buffered before they are processed. A {@code Crypto}
+	 * from {@code CryptoFactory.parallel} is given more, so that its pieces can be split
+	 */
+	public CryptoOutputStream(OutputStream out, Encoding encoding, Crypto crypto, boolean decrypt, int chunkSize) {
+		ChunkCipher.checkChunkSize(chunkSize);
+		this.out = out;
+		this.encoding = encoding;
+		this.cipher = new ChunkCipher(crypto, decrypt);
+		int size = ChunkCipher.chunkSize(crypto, chunkSize);
+		this.bytes = new byte[size];
+		this.ints = new int[size];
+	}
+
+	private void checkOpen() throws IOException {
+		if(this.closed){
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private void flushChunk() throws IOException {
+		if(this.count == 0){
+			return;
+		}
+		this.encoding.decode(this.bytes, 0, this.ints, 0, this.count);
+		this.cipher.apply(this.ints, this.count);
+		this.encoding.encode(this.ints, 0, this.bytes, 0, this.count);
+		this.out.write(this.bytes, 0, this.count);
+		this.count = 0;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		this.checkOpen();
+		this.bytes[this.count++] = (byte) b;
+		if(this.count == this.bytes.length){
+			this.flushChunk();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		this.checkOpen();
+		while(len > 0){
+			int n = Math.min(len, this.bytes.length - this.count);
+			System.arraycopy(b, off, this.bytes, this.count, n);
+			this.count += n;
+			off += n;
+			len -= n;
+			if(this.count == this.bytes.length){
+				this.flushChunk();
+			}
+		}
+	}
+
+	/**
+	 * Process the buffered bytes and flush the underlying {@code OutputStream}
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.checkOpen();
+		this.flushChunk();
+		this.out.flush();
+	}
+
+	/**
+	 * Process the buffered bytes and close the underlying {@code OutputStream}
+	 */
+	@Override
+	public void close() throws IOException {
+		if(this.closed){
+			return;
+		}
+		try{
+			this.flushChunk();
+		}
+		finally{
+			this.closed = true;
+			this.out.close();
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A {@code Reader} that encrypts/decrypts the characters read from another
+ * {@code Reader} with an {@code Encoding} and a {@code Crypto} object. Characters are
+ * processed in fixed-size chunks, so the message never has to be held in memory as a
+ * whole. For the built-in ciphers the output is exactly the same as calling
+ * {@link Encoding#encrypt(String, Crypto)} on the whole message.
+ * @author Nathaniel
+ *
+ */
+
+public class CryptoReader extends Reader {
+
+	private final Reader in;
+	private final Encoding encoding;
+	private final ChunkCipher cipher;
+	private final char[] chars;
+	private final int[] ints;
+	private int pos;
+	private int limit;
+	private boolean closed;
+
+	/**
+	 * Create a {@code CryptoReader} with the default chunk size
+	 * @param in The {@code Reader} to read the original characters from
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the characters read; {@code false} to encrypt them
+	 */
+	public CryptoReader(Reader in, Encoding encoding, Crypto crypto, boolean decrypt) {
+		this(in, encoding, crypto, decrypt, ChunkCipher.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a {@code CryptoReader}
+	 * @param in The {@code Reader} to read the original characters from
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the characters read; {@code false} to encrypt them
+	 * @param chunkSize The maximum number of characters read and processed at a time. A {@code Crypto}
+	 * from {@code CryptoFactory.parallel} is given more, so that its pieces can be split
+	 */
+	public CryptoReader(Reader in, Encoding encoding, Crypto crypto, boolean decrypt, int chunkSize) {
+		super(in);
+		ChunkCipher.checkChunkSize(chunkSize);
+		this.in = in;
+		this.encoding = encoding;
+		this.cipher = new ChunkCipher(crypto, decrypt);
+		int size = ChunkCipher.chunkSize(crypto, chunkSize);
+		this.chars = new char[size];
+		this.ints = new int[size];
+	}
+
+	private boolean fill() throws IOException {
+		int n = this.in.read(this.chars, 0, this.chars.length);
+		if(n <= 0){
+			return n == 0;
+		}
+		this.encoding.decode(this.chars, 0, this.ints, 0, n);
+		this.cipher.apply(this.ints, n);
+		this.encoding.encode(this.ints, 0, this.chars, 0, n);
+		this.pos = 0;
+		this.limit = n;
+		return true;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		synchronized(this.lock){
+			if(this.closed){
+				throw new IOException("Stream closed");
+			}
+			if(len == 0){
+				return 0;
+			}
+			while(this.pos == this.limit){
+				if(!this.fill()){
+					return -1;
+				}
+			}
+			int n = Math.min(len, this.limit - this.pos);
+			System.arraycopy(this.chars, this.pos, cbuf, off, n);
+			this.pos += n;
+			return n;
+		}
+	}
+
+	@Override
+	public boolean ready() throws IOException {
+		synchronized(this.lock){
+			return this.pos < this.limit || this.in.ready();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized(this.lock){
+			this.closed = true;
+			this.in.close();
+		}
+	}
+
+}
@@ -0,0 +1,476 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The {@code CryptoSolver} class recovers the keys of classical ciphers from a
+ * cipher text alone. Every key is tried, and the decrypted text is scored against
+ * the character frequencies of English. The cipher text is only read once, into a
+ * histogram: decrypting it with a key only moves the counts around, so each key is
+ * scored in time proportional to the size of the alphabet instead of the length of
+ * the text. Keys (and Vigenere key lengths) are scored in parallel on the common
+ * {@code ForkJoinPool}. RSA public keys are broken by factoring the modulus.
+ * <p>
+ * Characters not defined by the {@code Encoding} (e.g. spaces with
+ * {@code Encoding.DEFAULT}) are skipped. Unless given, the divisor is one more than
+ * the largest integer defined by the {@code Encoding}.
+ * @author Nathaniel
+ *
+ */
+
+public final class CryptoSolver {
+
+	// The number of keys scored by a single thread
+	private static final int KEYS_PER_TASK = 64;
+
+	// The trigram table of the Kasiski test is only used while it takes at most this many entries
+	private static final int KASISKI_TABLE_LIMIT = 1 << 21;
+
+	// The Kasiski test stops after this many distances, which are plenty for a reliable ratio
+	private static final int KASISKI_SAMPLES = 1 << 16;
+
+	// The number of symbols counted for every key length before moving on in the text
+	private static final int COUNT_BLOCK = 1 << 12;
+
+	/**
+	 * Scores the keys numbered [0, count) into an array
+	 */
+	private abstract static class Scorer {
+
+		final long[] counts;
+		final double[] logP;
+		final double total;
+
+		Scorer(long[] counts, double[] logP) {
+			this.counts = counts;
+			this.logP = logP;
+			long sum = 0;
+			for(long c : counts){
+				sum += c;
+			}
+			this.total = sum;
+		}
+
+		abstract double score(int index);
+
+		double[] scoreAll(int count){
+			double[] scores = new double[count];
+			ForkJoinPool.commonPool().invoke(new Task(this, scores, 0, count));
+			return scores;
+		}
+
+	}
+
+	private static final class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Scorer scorer;
+		private final double[] scores;
+		private final int from;
+		private final int to;
+
+		Task(Scorer scorer, double[] scores, int from, int to) {
+			this.scorer = scorer;
+			this.scores = scores;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from <= KEYS_PER_TASK){
+				for(int i = this.from; i < this.to; ++i){
+					this.scores[i] = this.scorer.score(i);
+				}
+				return;
+			}
+			int mid = (this.from + this.to) >>> 1;
+			invokeAll(new Task(this.scorer, this.scores, this.from, mid),
+					new Task(this.scorer, this.scores, mid, this.to));
+		}
+
+	}
+
+	/**
+	 * Find the most likely keys of a Caesar Cipher
+	 * @param cipher The cipher text
+	 * @param encoding The {@code Encoding} the cipher text was encrypted with
+	 * @param k The number of keys to return
+	 * @return At most k solutions, the best one first
+	 */
+	public static List<Solution> caesar(CharSequence cipher, Encoding encoding, int k){
+		return caesar(cipher, encoding, LanguageModel.divisor(encoding), k);
+	}
+
+	/**
+	 * Find the most likely keys of a Caesar Cipher
+	 * @param cipher The cipher text
+	 * @param encoding The {@code Encoding} the cipher text was encrypted with
+	 * @param divisor The "n" in "x mod n", used in the modulus operation
+	 * @param k The number of keys to return
+	 * @return At most k solutions, the best one first
+	 */
+	public static List<Solution> caesar(CharSequence cipher, Encoding encoding, final int divisor, int k){
+		checkDivisor(divisor);
+		Scorer scorer = new Scorer(histogram(cipher, encoding, divisor), LanguageModel.logProbabilities(encoding, divisor)) {
+			@Override
+			double score(int key) {
+				return this.total == 0 ? 0 : shiftScore(this.counts, 0, this.logP, divisor, key) / this.total;
+			}
+		};
+		double[] scores = scorer.scoreAll(divisor);
+		List<Solution> result = new ArrayList<Solution>();
+		for(int key : best(scores, k)){
+			result.add(new Solution(CryptoFactory.caesar(key, divisor), new int[] {key}, scores[key]));
+		}
+		return result;
+	}
+
+	/**
+	 * Find the most likely keys of an Affine Cipher. Only the values of "a" coprime
+	 * with the divisor are tried, since the others cannot be decrypted.
+	 * @param cipher The cipher text
+	 * @param encoding The {@code Encoding} the cipher text was encrypted with
+	 * @param k The number of keys to return
+	 * @return At most k solutions, the best one first
+	 */
+	public static List<Solution> affine(CharSequence cipher, Encoding encoding, int k){
+		return affine(cipher, encoding, LanguageModel.divisor(encoding), k);
+	}
+
+	/**
+	 * Find the most likely keys of an Affine Cipher. Only the values of "a" coprime
+	 * with the divisor are tried, since the others cannot be decrypted.
+	 * @param cipher The cipher text
+	 * @param encoding The {@code Encoding} the cipher text was encrypted with
+	 * @param divisor The "n" in "x mod n", used in the modulus operation
+	 * @param k The number of keys to return
+	 * @return At most k solutions, the best one first
+	 */
+	public static List<Solution> affine(CharSequence cipher, Encoding encoding, final int divisor, int k){
+		checkDivisor(divisor);
+		int units = 0;
+		final int[] as = new int[divisor];
+		final int[] inverses = new int[divisor];
+		// candidates[i] = i + 1; an entry of -1 means a is not coprime with the divisor
+		long[] candidates = new long[divisor - 1];
+		for(int i = 0; i < candidates.length; ++i){
+			candidates[i] = i + 1;
+		}
+		long[] candidateInverses = DiscreteMath.modInvBatch(candidates, divisor);
+		for(int i = 0; i < candidates.length; ++i){
+			if(candidateInverses[i] >= 0){
+				as[units] = i + 1;
+				inverses[units] = (int) candidateInverses[i];
+				++units;
+			}
+		}
+		if((long) units * divisor > Integer.MAX_VALUE){
+			throw new RuntimeException("Too many Affine keys for divisor " + divisor);
+		}
+		Scorer scorer = new Scorer(histogram(cipher, encoding, divisor), LanguageModel.logProbabilities(encoding, divisor)) {
+			@Override
+			double score(int index) {
+				// y decrypts to aInv * (y - b); step x by aInv as y goes up by one
+				int aInv = inverses[index / divisor];
+				int b = index % divisor;
+				int x = DiscreteMath.mod(-(int) ((long) aInv * b % divisor), divisor);
+				double sum = 0;
+				for(int y = 0; y < divisor; ++y){
+					sum += this.counts[y] * this.logP[x];
+					x += aInv;
+					if(x >= divisor){
+						x -= divisor;
+					}
+				}
+				return this.total == 0 ? 0 : sum / this.total;
+			}
+		};
+		double[] scores = scorer.scoreAll(units * divisor);
+		List<Solution> result = new ArrayList<Solution>();
+		for(int index : best(scores, k)){
+			int a = as[index / divisor];
+			int b = index % divisor;
+			result.add(new Solution(CryptoFactory.affine(a, b, divisor), new int[] {a, b}, scores[index]));
+		}
+		return result;
+	}
+
+	/**
+	 * Find the most likely keys of a Vigenere Cipher. Every key length up to
+	 * {@code maxKeyLength} is rated by the index of coincidence of its columns and by
+	 * how many distances between repeated trigrams it divides (the Kasiski test); then
+	 * each column of the best lengths is solved as a Caesar Cipher.
+	 * @param cipher The cipher text
+	 * @param encoding The {@code Encoding} the cipher text was encrypted with
+	 * @param maxKeyLength The longest key length to try
+	 * @param k The number of key lengths to return a key for
+	 * @return At most k solutions, one per key length, the most likely length first
+	 */
+	public static List<Solution> vigenere(CharSequence cipher, Encoding encoding, int maxKeyLength, int k){
+		return vigenere(cipher, encoding, LanguageModel.divisor(encoding), maxKeyLength, k);
+	}
+
+	/**
+	 * Find the most likely keys of a Vigenere Cipher. Every key length up to
+	 * {@code maxKeyLength} is rated by the index of coincidence of its columns and by
+	 * how many distances between repeated trigrams it divides (the Kasiski test); then
+	 * each column of the best lengths is solved as a Caesar Cipher.
+	 * @param cipher The cipher text
+	 * @param encoding The {@code Encoding} the cipher text was encrypted with
+	 * @param divisor The "n" in "x mod n", used in the modulus operation
+	 * @param maxKeyLength The longest key length to try
+	 * @param k The number of key lengths to return a key for
+	 * @return At most k solutions, one per key length, the most likely length first
+	 */
+	public static List<Solution> vigenere(CharSequence cipher, Encoding encoding, final int divisor, int maxKeyLength, int k){
+		checkDivisor(divisor);
+		if(maxKeyLength <= 0){
+			throw new RuntimeException("Illegal maximum key length " + maxKeyLength + ". It must be positive.");
+		}
+		final int[] text = symbols(cipher, encoding, divisor);
+		final double[] logP = LanguageModel.logProbabilities(encoding, divisor);
+		double kappa = 0;
+		for(double l : logP){
+			kappa += Math.exp(2 * l);
+		}
+		final double expected = kappa;
+		final long[] kasiski = kasiski(text, divisor, maxKeyLength);
+		final long[][] columns = columnCounts(text, divisor, maxKeyLength);
+		Scorer scorer = new Scorer(new long[0], logP) {
+			@Override
+			double score(int index) {
+				int length = index + 1;
+				long[] counts = columns[index];
+				double ioc = 0;
+				for(int c = 0; c < length; ++c){
+					ioc += coincidence(counts, c * divisor, divisor);
+				}
+				double rating = ioc / length / expected;
+				if(kasiski[0] > 0){
+					rating += (double) kasiski[length] / kasiski[0];
+				}
+				return rating;
+			}
+		};
+		double[] ratings = scorer.scoreAll(maxKeyLength);
+		List<Solution> result = new ArrayList<Solution>();
+		for(int index : best(ratings, k)){
+			int length = index + 1;
+			long[] counts = columns[index];
+			int[] key = new int[length];
+			double sum = 0;
+			long total = 0;
+			for(int c = 0; c < length; ++c){
+				double bestScore = Double.NEGATIVE_INFINITY;
+				for(int shift = 0; shift < divisor; ++shift){
+					double score = shiftScore(counts, c * divisor, logP, divisor, shift);
+					if(score > bestScore){
+						bestScore = score;
+						key[c] = shift;
+					}
+				}
+				sum += bestScore;
+				for(int v = 0; v < divisor; ++v){
+					total += counts[c * divisor + v];
+				}
+			}
+			result.add(new Solution(CryptoFactory.vigenere(key, divisor), key, total == 0 ? 0 : sum / total));
+		}
+		return result;
+	}
+
+	/**
+	 * Get the prime factors of a positive integer, by trial division and then
+	 * Pollard's rho algorithm
+	 * @param n A positive integer
+	 * @return The prime factors of n in ascending order, repeated by multiplicity
+	 */
+	public static long[] factor(long n){
+		return Factoring.factorize(n);
+	}
+
+	/**
+	 * Break an RSA public key: factor the modulus into its two primes and build the
+	 * {@code Crypto} with the private key derived from them
+	 * @param n The modulus, a product of two distinct primes
+	 * @param e The public key
+	 * @return A {@code Crypto} object that decrypts what the public key encrypts
+	 */
+	public static Crypto rsa(long n, long e){
+		long[] factors = factor(n);
+		if(factors.length != 2 || factors[0] == factors[1]){
+			throw new RuntimeException("The modulus " + n + " is not a product of two distinct primes");
+		}
+		return CryptoFactory.rsa(factors[0], factors[1], e);
+	}
+
+	// The sum of log-probabilities of the symbols counted in counts[off, off + n) decrypted with a shift of key
+	private static double shiftScore(long[] counts, int off, double[] logP, int n, int key){
+		// y decrypts to y - key: the counts of [key, n) land on [0, n - key), the rest wrap around
+		double sum = 0;
+		for(int y = key; y < n; ++y){
+			sum += counts[off + y] * logP[y - key];
+		}
+		for(int y = 0; y < key; ++y){
+			sum += counts[off + y] * logP[y - key + n];
+		}
+		return sum;
+	}
+
+	// The index of coincidence of the symbols counted in counts[off, off + n)
+	private static double coincidence(long[] counts, int off, int n){
+		double pairs = 0;
+		long total = 0;
+		for(int v = 0; v < n; ++v){
+			long c = counts[off + v];
+			pairs += (double) c * (c - 1);
+			total += c;
+		}
+		return total < 2 ? 0 : pairs / ((double) total * (total - 1));
+	}
+
+	/*
+	 * The histograms of the columns of every key length up to maxKeyLength, as
+	 * result[length - 1][column * n + v], in one pass over the text. The text is taken
+	 * in blocks small enough to stay in the L1 cache while every key length counts them.
+	 */
+	private static long[][] columnCounts(int[] text, int n, int maxKeyLength){
+		long[][] counts = new long[maxKeyLength][];
+		// rows[l] is the offset of the column of the next symbol for key length l + 1
+		int[] rows = new int[maxKeyLength];
+		for(int l = 0; l < maxKeyLength; ++l){
+			counts[l] = new long[(l + 1) * n];
+		}
+		for(int from = 0; from < text.length; from += COUNT_BLOCK){
+			int to = Math.min(from + COUNT_BLOCK, text.length);
+			for(int l = 0; l < maxKeyLength; ++l){
+				long[] c = counts[l];
+				int row = rows[l];
+				for(int i = from; i < to; ++i){
+					int v = text[i];
+					if(v >= 0){
+						++c[row + v];
+					}
+					row += n;
+					if(row == c.length){
+						row = 0;
+					}
+				}
+				rows[l] = row;
+			}
+		}
+		return counts;
+	}
+
+	/*
+	 * result[length] is the number of distances between consecutive occurrences of the
+	 * same trigram that are multiples of length, and result[0] is the number of distances
+	 */
+	private static long[] kasiski(int[] text, int n, int maxKeyLength){
+		long[] result = new long[maxKeyLength + 1];
+		if((long) n * n * n > KASISKI_TABLE_LIMIT){
+			return result;
+		}
+		int[] last = new int[n * n * n];
+		for(int i = 0; i + 2 < text.length && result[0] < KASISKI_SAMPLES; ++i){
+			int a = text[i];
+			int b = text[i + 1];
+			int c = text[i + 2];
+			if(a < 0 || b < 0 || c < 0){
+				continue;
+			}
+			int trigram = (a * n + b) * n + c;
+			// positions are stored plus one, so that zero means "not seen yet"
+			int previous = last[trigram] - 1;
+			last[trigram] = i + 1;
+			if(previous >= 0){
+				int distance = i - previous;
+				++result[0];
+				for(int length = 1; length <= maxKeyLength; ++length){
+					if(distance % length == 0){
+						++result[length];
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	// The symbols of a cipher text; characters not in the encoding are skipped, and symbols outside [0, n) are -1
+	private static int[] symbols(CharSequence cipher, Encoding encoding, int n){
+		int[] text = new int[cipher.length()];
+		int len = 0;
+		for(int i = 0; i < text.length; ++i){
+			char c = cipher.charAt(i);
+			if(encoding.hasRegistered(c)){
+				int v = encoding.decode(c);
+				text[len++] = (v >= 0 && v < n) ? v : -1;
+			}
+		}
+		return len == text.length ? text : Arrays.copyOf(text, len);
+	}
+
+	private static void checkDivisor(int divisor){
+		if(divisor <= 0){
+			throw new RuntimeException("Illegal divisor " + divisor + ". It must be positive.");
+		}
+	}
+
+	static long[] histogram(CharSequence cipher, Encoding encoding, int divisor){
+		long[] counts = new long[divisor];
+		for(int i = 0, len = cipher.length(); i < len; ++i){
+			char c = cipher.charAt(i);
+			if(encoding.hasRegistered(c)){
+				int v = encoding.decode(c);
+				if(v >= 0 && v < divisor){
+					++counts[v];
+				}
+			}
+		}
+		return counts;
+	}
+
+	// The indices of the k highest scores, the highest first; ties go to the lower index
+	static List<Integer> best(final double[] scores, int k){
+		if(k <= 0){
+			throw new RuntimeException("Illegal k " + k + ". It must be positive.");
+		}
+		PriorityQueue<Integer> heap = new PriorityQueue<Integer>(Math.min(k, Math.max(1, scores.length)), new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i, Integer j) {
+				int c = Double.compare(scores[i], scores[j]);
+				return c != 0 ? c : Integer.compare(j, i);
+			}
+		});
+		for(int i = 0; i < scores.length; ++i){
+			heap.add(i);
+			if(heap.size() > k){
+				heap.poll();
+			}
+		}
+		List<Integer> result = new ArrayList<Integer>(heap.size());
+		while(!heap.isEmpty()){
+			result.add(heap.poll());
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+	private CryptoSolver() {
+
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A {@code Writer} that encrypts/decrypts the characters written to it with an
+ * {@code Encoding} and a {@code Crypto} object, and passes the result on to another
+ * {@code Writer}. Characters are processed in fixed-size chunks, so the message never
+ * has to be held in memory as a whole. For the built-in ciphers the output is exactly
+ * the same as calling {@link Encoding#encrypt(String, Crypto)} on the whole message.
+ * @author Nathaniel
+ *
+ */
+
+public class CryptoWriter extends Writer {
+
+	private final Writer out;
+	private final Encoding encoding;
+	private final ChunkCipher cipher;
+	private final char[] chars;
+	private final int[] ints;
+	private int count;
+	private boolean closed;
+
+	/**
+	 * Create a {@code CryptoWriter} with the default chunk size
+	 * @param out The {@code Writer} that receives the result
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the characters written; {@code false} to encrypt them
+	 */
+	public CryptoWriter(Writer out, Encoding encoding, Crypto crypto, boolean decrypt) {
+		this(out, encoding, crypto, decrypt, ChunkCipher.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create a {@code CryptoWriter}
+	 * @param out The {@code Writer} that receives the result
+	 * @param encoding The {@code Encoding} between characters and integers
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt the characters written; {@code false} to encrypt them
+	 * @param chunkSize The number of characters buffered before they are processed. A {@code Crypto}
+	 * from {@code CryptoFactory.parallel} is given more, so that its pieces can be split
+	 */
+	public CryptoWriter(Writer out, Encoding encoding, Crypto crypto, boolean decrypt, int chunkSize) {
+		super(out);
+		ChunkCipher.checkChunkSize(chunkSize);
+		this.out = out;
+		this.encoding = encoding;
+		this.cipher = new ChunkCipher(crypto, decrypt);
+		int size = ChunkCipher.chunkSize(crypto, chunkSize);
+		this.chars = new char[size];
+		this.ints = new int[size];
+	}
+
+	private void checkOpen() throws IOException {
+		if(this.closed){
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private void flushChunk() throws IOException {
+		if(this.count == 0){
+			return;
+		}
+		this.encoding.decode(this.chars, 0, this.ints, 0, this.count);
+		this.cipher.apply(this.ints, this.count);
+		this.encoding.encode(this.ints, 0, this.chars, 0, this.count);
+		this.out.write(this.chars, 0, this.count);
+		this.count = 0;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		synchronized(this.lock){
+			this.checkOpen();
+			while(len > 0){
+				int n = Math.min(len, this.chars.length - this.count);
+				System.arraycopy(cbuf, off, this.chars, this.count, n);
+				this.count += n;
+				off += n;
+				len -= n;
+				if(this.count == this.chars.length){
+					this.flushChunk();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Process the buffered characters and flush the underlying {@code Writer}
+	 */
+	@Override
+	public void flush() throws IOException {
+		synchronized(this.lock){
+			this.checkOpen();
+			this.flushChunk();
+			this.out.flush();
+		}
+	}
+
+	/**
+	 * Process the buffered characters and close the underlying {@code Writer}
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized(this.lock){
+			if(this.closed){
+				return;
+			}
+			try{
+				this.flushChunk();
+			}
+			finally{
+				this.closed = true;
+				this.out.close();
+			}
+		}
+	}
+
+}
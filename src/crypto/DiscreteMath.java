@@ -13,73 +13,84 @@ package crypto;
 
 public class DiscreteMath {
 	
+	// Trial division by these primes comes before Miller-Rabin
+	private static final int[] SMALL_PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53};
+	
+	// Every composite below 2^64 fails the Miller-Rabin test for at least one of these bases
+	private static final long[] WITNESSES = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+	
 	private static void checkPositive(long l){
 		if(l <= 0){
 			throw new RuntimeException("Illegal value " + l + ". It must be positive.");
 		}
 	}
-/*	
+	
 	private static void checkNonNegative(long l){
 		if(l < 0){
 			throw new RuntimeException("Illegal value " + l + ". It must be non-negative.");
 		}
 	}
-*/	
-	private static long[] extendEARecursive(long a, long b){
-		long[] ans = new long[3];
-        long q;
-
-        if (b == 0)  {
-            ans[0] = a;
-            ans[1] = 1;
-            ans[2] = 0;
-        }
-        else
-            {
-               q = a/b;
-               ans = extendEARecursive (b, a % b);
-               long temp = ans[1] - ans[2]*q;
-               ans[1] = ans[2];
-               ans[2] = temp;
-            }
-
-        return ans;
-	}
 	
+	private static long gcdIterative(long a, long b){
+		while(b != 0){
+			long r = a % b;
+			a = b;
+			b = r;
+		}
+		return a;
+	}
 	
-	private static long[] extendedEA(long a, long b){
+	/**
+	 * Get the greatest common divisor of two positive integers
+	 * @param a A positive integer
+	 * @param b Another positive integer
+	 * @return The gcd of a and b
+	 */
+	public static long gcd(long a, long b){
 		checkPositive(a);
 		checkPositive(b);
-        return extendEARecursive(a, b);
+		return gcdIterative(a, b);
 	}
 	
-	private static long gcdRecursive(long smaller, long larger){
-		if(smaller == 0){
-			return larger;
-		}
-		else{
-			return gcdRecursive(larger % smaller, smaller);
+	/**
+	 * Get the greatest common divisor of two positive integers
+	 * @param a A positive integer
+	 * @param b Another positive integer
+	 * @return The gcd of a and b
+	 */
+	public static int gcd(int a, int b){
+		checkPositive(a);
+		checkPositive(b);
+		while(b != 0){
+			int r = a % b;
+			a = b;
+			b = r;
 		}
+		return a;
 	}
 	
 	/**
-	 * Get the greatest common divisor of two positive integers
+	 * Get the greatest common divisor of two positive integers by the binary
+	 * (Stein's) algorithm, which uses only shifts and subtractions
 	 * @param a A positive integer
 	 * @param b Another positive integer
 	 * @return The gcd of a and b
 	 */
-	public static long gcd(long a, long b){
+	public static long gcdBinary(long a, long b){
 		checkPositive(a);
 		checkPositive(b);
-		if(a == b){
-			return a;
-		}
-		else if(a > b){
-			long temp = a;
-			a = b;
-			b = temp;
+		int shift = Long.numberOfTrailingZeros(a | b);
+		a >>= Long.numberOfTrailingZeros(a);
+		while(b != 0){
+			b >>= Long.numberOfTrailingZeros(b);
+			if(a > b){
+				long temp = a;
+				a = b;
+				b = temp;
+			}
+			b -= a;
 		}
-		return gcdRecursive(a, b);
+		return a << shift;
 	}
 	
 	/**
@@ -90,10 +101,122 @@ public class DiscreteMath {
 	 */
 	public static long mod(long a, long b){
 		checkPositive(b);
-		while(a < 0){
-			a += b;
+		return Math.floorMod(a, b);
+	}
+	
+	/**
+	 * Perform a mod b
+	 * @param a An integer, which could be negative, zero, or positive
+	 * @param b A positive integer
+	 * @return a mod b
+	 */
+	public static int mod(int a, int b){
+		checkPositive(b);
+		return Math.floorMod(a, b);
+	}
+	
+	/**
+	 * Calculate a * b mod divisor without overflow, for any divisor up to
+	 * {@code Long.MAX_VALUE}
+	 * @param a An integer, which could be negative, zero, or positive
+	 * @param b An integer, which could be negative, zero, or positive
+	 * @param divisor A positive integer
+	 * @return a * b (mod divisor)
+	 */
+	public static long mulMod(long a, long b, long divisor){
+		checkPositive(divisor);
+		if(a < 0 || a >= divisor){
+			a = Math.floorMod(a, divisor);
+		}
+		if(b < 0 || b >= divisor){
+			b = Math.floorMod(b, divisor);
+		}
+		return mulModReduced(a, b, divisor);
+	}
+	
+	/**
+	 * a * b mod divisor for 0 <= a, b < divisor
+	 */
+	static long mulModReduced(long a, long b, long divisor){
+		long lo = a * b;
+		long hi = Math.multiplyHigh(a, b);
+		if(hi == 0 && lo >= 0){
+			return lo % divisor;
+		}
+		// Both factors are below divisor, so hi < divisor
+		return remainder(hi, lo, divisor);
+	}
+	
+	/**
+	 * (hi * 2^64 + lo) mod divisor for 0 <= hi < divisor and divisor > 1, by long
+	 * division in base 2^32 (Knuth's algorithm D). The divisor is shifted until its top
+	 * bit is set, so that each estimated digit of the quotient is at most 2 too large.
+	 */
+	private static long remainder(long hi, long lo, long divisor){
+		int shift = Long.numberOfLeadingZeros(divisor);
+		long d = divisor << shift;
+		long dHi = d >>> 32;
+		long dLo = d & 0xFFFFFFFFL;
+		long n32 = (hi << shift) | (lo >>> (64 - shift));
+		long n10 = lo << shift;
+		long n1 = n10 >>> 32;
+		long n0 = n10 & 0xFFFFFFFFL;
+		long q = quotientDigit(n32, n1, dHi, dLo);
+		long n21 = (n32 << 32) + n1 - q * d;
+		q = quotientDigit(n21, n0, dHi, dLo);
+		return ((n21 << 32) + n0 - q * d) >>> shift;
+	}
+	
+	/**
+	 * The next 32-bit digit of the quotient of (n * 2^32 + next) by d, for n < d
+	 */
+	private static long quotientDigit(long n, long next, long dHi, long dLo){
+		long q = Long.divideUnsigned(n, dHi);
+		long r = n - q * dHi;
+		while((q >>> 32) != 0 || Long.compareUnsigned(q * dLo, (r << 32) | next) > 0){
+			--q;
+			r += dHi;
+			if((r >>> 32) != 0){
+				break;
+			}
 		}
-		return a % b;
+		return q;
+	}
+	
+	/**
+	 * The high 64 bits of the unsigned 128-bit product of a and b
+	 */
+	static long unsignedMultiplyHigh(long a, long b){
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+	}
+	
+	/**
+	 * Calculate modulus exponentiation without overflow. An odd divisor (e.g. an RSA
+	 * modulus) is handled in Montgomery form; any other divisor by square-and-multiply.
+	 * @param base A non-negative integer
+	 * @param expo A non-negative integer
+	 * @param divisor A positive integer
+	 * @return base^expo (mod divisor)
+	 */
+	public static long modExpo(long base, long expo, long divisor){
+		checkNonNegative(base);
+		checkNonNegative(expo);
+		checkPositive(divisor);
+		if((divisor & 1) == 1 && divisor > 1){
+			return new Montgomery(divisor).pow(base, expo);
+		}
+		return modExpoSquareMultiply(base % divisor, expo, divisor);
+	}
+	
+	private static long modExpoSquareMultiply(long base, long expo, long divisor){
+		long result = 1 % divisor;
+		for(int i = 63 - Long.numberOfLeadingZeros(expo); i >= 0; --i){
+			result = mulModReduced(result, result, divisor);
+			if(((expo >>> i) & 1) == 1){
+				result = mulModReduced(result, base, divisor);
+			}
+		}
+		return result;
 	}
 	
 	/**
@@ -107,18 +230,7 @@ public class DiscreteMath {
 		checkPositive(base);
 		checkPositive(expo);
 		checkPositive(divisor);
-		String binStr = Long.toBinaryString(expo);
-		long result = 1;
-		for(int i = 0; i < binStr.length(); ++i){
-			if(binStr.charAt(i) == '1'){
-				result = (result * result) % divisor;
-				result = (result * base) % divisor;
-			}
-			else{
-				result = (result * result) % divisor;
-			}
-		}
-		return result;
+		return modExpoSquareMultiply(base % divisor, expo, divisor);
 	}
 	
 	/**
@@ -141,11 +253,11 @@ public class DiscreteMath {
 		}
 		else if(expo % 2 == 0){
 			long temp = modExpoRecursiveHelper(base, expo / 2, divisor);
-			return (temp * temp) % divisor;
+			return mulModReduced(temp, temp, divisor);
 		}
 		else{
 			long temp = modExpoRecursiveHelper(base, expo - 1, divisor);
-			return (base * temp) % divisor;
+			return mulModReduced(base % divisor, temp, divisor);
 		}
 	}
 	/**
@@ -155,10 +267,198 @@ public class DiscreteMath {
 	 * @return k^(-1) mod n
 	 */
 	public static long modInv(long k, long n){
-		if(gcd(n, k) != 1){
+		checkPositive(n);
+		checkPositive(k);
+		long inverse = modInvOrNegative(k, n);
+		if(inverse < 0){
 			throw new RuntimeException("Modulus inverse does not exist because gcd(a,b) != 1");
 		}
-		return mod(extendedEA(n, k)[2], n);
+		return inverse;
+	}
+	
+	/**
+	 * k^(-1) mod n for k >= 0 and n > 0, or -1 if gcd(k, n) != 1
+	 */
+	private static long modInvOrNegative(long k, long n){
+		// Extended Euclid on (n, k), keeping only the coefficient of k
+		long a = n, b = k;
+		long y0 = 0, y1 = 1;
+		while(b != 0){
+			long q = a / b;
+			long r = a - q * b;
+			a = b;
+			b = r;
+			long y = y0 - q * y1;
+			y0 = y1;
+			y1 = y;
+		}
+		if(a != 1){
+			return -1;
+		}
+		return Math.floorMod(y0, n);
+	}
+	
+	/**
+	 * Calculate the modulus inverses of many integers with the same n, using a single
+	 * extended Euclidean algorithm (Montgomery's trick): the inverse of the product of
+	 * all the integers is multiplied back by the prefix products, which takes about 3
+	 * modular multiplications per integer. If some integers are not coprime to n,
+	 * they are found with one gcd each and the others are inverted as before.
+	 * <p>
+	 * For an odd n the multiplications are Montgomery multiplications, which leave a
+	 * factor 2^-64 in each prefix product. Those factors cancel in the backward pass,
+	 * so no value has to be converted into or out of Montgomery form.
+	 * @param values Integers, which could be negative, zero, or positive
+	 * @param n A positive integer
+	 * @return The array of values[i]^(-1) mod n, with -1 for every values[i] that is not coprime to n
+	 */
+	public static long[] modInvBatch(long[] values, long n){
+		checkPositive(n);
+		long[] result = new long[values.length];
+		long[] reduced = new long[values.length];
+		for(int i = 0; i < values.length; ++i){
+			reduced[i] = Math.floorMod(values[i], n);
+		}
+		Montgomery montgomery = (n & 1) == 1 && n > 1 ? new Montgomery(n) : null;
+		if(!modInvBatch(reduced, n, montgomery, result)){
+			for(int i = 0; i < reduced.length; ++i){
+				if(reduced[i] == 0 || gcdBinary(reduced[i], n) != 1){
+					// 1 is its own inverse, so the entry is left out of the products
+					reduced[i] = 1;
+					result[i] = -1;
+				}
+			}
+			long[] inverses = new long[reduced.length];
+			modInvBatch(reduced, n, montgomery, inverses);
+			for(int i = 0; i < reduced.length; ++i){
+				if(result[i] != -1){
+					result[i] = inverses[i];
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Invert every reduced value into result, or return false if some value is not
+	 * coprime to n
+	 */
+	private static boolean modInvBatch(long[] reduced, long n, Montgomery montgomery, long[] result){
+		if(reduced.length == 0){
+			return true;
+		}
+		// result[i] holds the product of reduced[0..i] until it is replaced by the inverse
+		long product = reduced[0];
+		result[0] = product;
+		for(int i = 1; i < reduced.length; ++i){
+			product = multiplyReduced(product, reduced[i], n, montgomery);
+			result[i] = product;
+		}
+		long inverse = modInvOrNegative(product, n);
+		if(inverse < 0){
+			return false;
+		}
+		for(int i = reduced.length - 1; i > 0; --i){
+			long next = multiplyReduced(inverse, reduced[i], n, montgomery);
+			result[i] = multiplyReduced(inverse, result[i - 1], n, montgomery);
+			inverse = next;
+		}
+		result[0] = inverse;
+		return true;
+	}
+	
+	private static long multiplyReduced(long a, long b, long n, Montgomery montgomery){
+		return montgomery != null ? montgomery.multiply(a, b) : mulModReduced(a, b, n);
+	}
+	
+	/**
+	 * Check if an integer is a prime. Multiples of the primes below 59 are ruled out
+	 * by trial division; the other integers by a deterministic Miller-Rabin test with
+	 * a fixed set of 7 bases, which is correct for every {@code long}.
+	 * @param n An integer, which could be negative, zero, or positive
+	 * @return true if n is a prime
+	 */
+	public static boolean isPrime(long n){
+		if(n < 2){
+			return false;
+		}
+		for(int p : SMALL_PRIMES){
+			if(n % p == 0){
+				return n == p;
+			}
+		}
+		if(n < 59 * 59){
+			return true;
+		}
+		return millerRabin(n);
+	}
+	
+	/**
+	 * Miller-Rabin test of an odd n >= 59^2, in Montgomery form
+	 */
+	private static boolean millerRabin(long n){
+		Montgomery montgomery = new Montgomery(n);
+		int s = Long.numberOfTrailingZeros(n - 1);
+		long d = (n - 1) >>> s;
+		long minusOne = montgomery.toMontgomery(n - 1);
+		for(long witness : WITNESSES){
+			long a = witness % n;
+			if(a == 0){
+				continue;
+			}
+			long x = montgomery.pow(a, d);
+			if(x == 1 || x == n - 1){
+				continue;
+			}
+			// square up to s - 1 times, looking for -1
+			x = montgomery.toMontgomery(x);
+			int i = 1;
+			for(; i < s; ++i){
+				x = montgomery.multiply(x, x);
+				if(x == minusOne){
+					break;
+				}
+			}
+			if(i == s){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Solve the linear congruence a * x = b (mod n). It has a solution if and only if
+	 * g = gcd(a, n) divides b, and then the solutions are x = x0 (mod n / g), i.e. g
+	 * different solutions modulo n.
+	 * @param a An integer, which could be negative, zero, or positive
+	 * @param b An integer, which could be negative, zero, or positive
+	 * @param n A positive integer
+	 * @return {x0, n / g}, with x0 the smallest non-negative solution
+	 */
+	public static long[] solveLinearCongruence(long a, long b, long n){
+		checkPositive(n);
+		a = Math.floorMod(a, n);
+		b = Math.floorMod(b, n);
+		long g = a == 0 ? n : gcdBinary(a, n);
+		if(b % g != 0){
+			throw new RuntimeException("Linear congruence has no solution because gcd(a,n) does not divide b");
+		}
+		long m = n / g;
+		// (a / g) * x = b / g (mod m), where a / g is coprime to m
+		long x0 = mulModReduced(b / g % m, modInvOrNegative(a / g % m, m), m);
+		return new long[] {x0, m};
+	}
+	
+	/**
+	 * Solve the system of congruences x = residues[i] (mod moduli[i]) by the Chinese
+	 * Remainder Theorem. To solve many systems with the same moduli, create a
+	 * {@code ChineseRemainder} once and reuse it.
+	 * @param residues Integers, which could be negative, zero, or positive
+	 * @param moduli Positive integers, pairwise coprime, whose product fits in a long
+	 * @return The solution x in [0, product of the moduli)
+	 */
+	public static long crt(long[] residues, long[] moduli){
+		return new ChineseRemainder(moduli).solve(residues);
 	}
 	
 	/**
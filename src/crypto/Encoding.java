@@ -4,6 +4,8 @@
 
 package crypto;
 
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -22,6 +24,28 @@ public final class Encoding {
 
 	private HashMap<Integer, Character> intCharMap = new HashMap<Integer, Character>();
 
+	// Unboxed copies of the two maps above, used by every lookup
+	private SymbolTable charTable;
+
+	private SymbolTable intTable;
+
+	// The table of LanguageModel for this Encoding, built when a solver first needs it
+	private volatile double[] languageModel;
+
+	// Symbols handed to a ChunkedCrypto at a time by the fused encrypt/decrypt path
+	private static final int FUSED_CHUNK = 1024;
+
+	// The time spent going from characters to integers and back, while CryptoMetrics is enabled
+	private static final CryptoMetrics DECODE = CryptoMetrics.of("Encoding.decode");
+	private static final CryptoMetrics ENCODE = CryptoMetrics.of("Encoding.encode");
+
+	private static final ThreadLocal<int[]> SCRATCH = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[FUSED_CHUNK];
+		}
+	};
+
 	/**
 	 * The default case-insensitive mapping, as a/A=0, b/B=1, ..., z/Z=25
 	 */
@@ -76,7 +100,7 @@ public final class Encoding {
 	 * @return True if such a character is defined; false if not
 	 */
 	public boolean hasRegistered(char c){
-		return this.charIntMap.containsKey(c);
+		return this.charTable.contains(c);
 	}
 	
 	/**
@@ -85,19 +109,34 @@ public final class Encoding {
 	 * @return True if such an integer is defined; false if not
 	 */
 	public boolean hasRegistered(int i){
-		return this.intCharMap.containsKey(i);
+		return this.intTable.contains(i);
+	}
+	
+	/**
+	 * @return The table of {@code LanguageModel} kept for this {@code Encoding}, or null
+	 */
+	double[] getLanguageModel(){
+		return this.languageModel;
+	}
+	
+	void setLanguageModel(double[] languageModel){
+		this.languageModel = languageModel;
 	}
 	
-	private void checkUnregistered(char c){
-		if(!this.charIntMap.containsKey(c)){
+	private int lookup(char c){
+		int i = this.charTable.get(c);
+		if(i == SymbolTable.MISSING && !this.charTable.contains(c)){
 			throw new RuntimeException("Unregistered char: \"" + c + "\"");
 		}
+		return i;
 	}
 	
-	private void checkUnregistered(int i){
-		if(!this.intCharMap.containsKey(i)){
+	private char lookup(int i){
+		int c = this.intTable.get(i);
+		if(c == SymbolTable.MISSING){
 			throw new RuntimeException("Unregistered integer: \"" + i + "\"");
 		}
+		return (char) c;
 	}
 	
 	/**
@@ -106,8 +145,7 @@ public final class Encoding {
 	 * @return The corresponding integer
 	 */
 	public int decode(char c){
-		this.checkUnregistered(c);
-		return this.charIntMap.get(c);
+		return this.lookup(c);
 	}
 	
 	/**
@@ -116,15 +154,29 @@ public final class Encoding {
 	 * @return The {@code int[]} corresponding to each of the characters in the {@code String}
 	 */
 	public int[] decode(String s){
-		char[] array = s.toCharArray();
-		int[] result = new int[array.length];
-		for(int i = 0; i < array.length; ++i){
-			this.checkUnregistered(array[i]);
-			result[i] = this.charIntMap.get(array[i]);
+		CryptoEvent event = CryptoMetrics.isEnabled() ? DECODE.begin() : null;
+		int[] result = new int[s.length()];
+		for(int i = 0; i < result.length; ++i){
+			result[i] = this.lookup(s.charAt(i));
+		}
+		if(event != null){
+			DECODE.end(event, "decode", result.length);
 		}
 		return result;
 	}
 	
+	void decode(char[] src, int srcOff, int[] dst, int dstOff, int len){
+		for(int i = 0; i < len; ++i){
+			dst[dstOff + i] = this.lookup(src[srcOff + i]);
+		}
+	}
+
+	void decode(byte[] src, int srcOff, int[] dst, int dstOff, int len){
+		for(int i = 0; i < len; ++i){
+			dst[dstOff + i] = this.lookup((char) (src[srcOff + i] & 0xFF));
+		}
+	}
+
 	/**
 	 * Decrypt a {@code String} cipher using a {@code Crypto} object
 	 * @param s The {@code String} to decrypt
@@ -132,7 +184,35 @@ public final class Encoding {
 	 * @return The original message
 	 */
 	public String decrypt(String s, Crypto c){
-		return this.encode(c.decrypt(this.decode(s)));
+		if(!isFused(c)){
+			return this.encode(c.decrypt(this.decode(s)));
+		}
+		char[] result = new char[s.length()];
+		this.transform(s, c, true, result, 0);
+		return new String(result);
+	}
+	
+	/**
+	 * Decrypt a cipher using a {@code Crypto} object, writing the original message
+	 * into a caller-supplied array
+	 * @param s The cipher to decrypt
+	 * @param c The {@code Crypto} object used
+	 * @param dst The array that receives the original message
+	 * @param dstOff The first element of {@code dst} to write
+	 */
+	public void decrypt(CharSequence s, Crypto c, char[] dst, int dstOff){
+		this.transform(s, c, true, dst, dstOff);
+	}
+	
+	/**
+	 * Decrypt a cipher using a {@code Crypto} object, putting the original message
+	 * into a {@code CharBuffer} at its current position
+	 * @param s The cipher to decrypt
+	 * @param c The {@code Crypto} object used
+	 * @param dst The buffer that receives the original message
+	 */
+	public void decrypt(CharSequence s, Crypto c, CharBuffer dst){
+		this.transform(s, c, true, dst);
 	}
 	
 	/**
@@ -141,8 +221,7 @@ public final class Encoding {
 	 * @return The corresponding character
 	 */
 	public char encode(int i){
-		this.checkUnregistered(i);
-		return this.intCharMap.get(i);
+		return this.lookup(i);
 	}
 	
 	/**
@@ -151,14 +230,34 @@ public final class Encoding {
 	 * @return The result {@code String}
 	 */
 	public String encode(int[] array){
-		StringBuilder sb = new StringBuilder(array.length);
-		for(int i : array){
-			this.checkUnregistered(i);
-			sb.append(this.intCharMap.get(i));
+		CryptoEvent event = CryptoMetrics.isEnabled() ? ENCODE.begin() : null;
+		char[] result = new char[array.length];
+		for(int i = 0; i < array.length; ++i){
+			result[i] = this.lookup(array[i]);
 		}
-		return sb.toString();
+		String s = new String(result);
+		if(event != null){
+			ENCODE.end(event, "encode", array.length);
+		}
+		return s;
 	}
-	
+
+	void encode(int[] src, int srcOff, char[] dst, int dstOff, int len){
+		for(int i = 0; i < len; ++i){
+			dst[dstOff + i] = this.lookup(src[srcOff + i]);
+		}
+	}
+
+	void encode(int[] src, int srcOff, byte[] dst, int dstOff, int len){
+		for(int i = 0; i < len; ++i){
+			char c = this.lookup(src[srcOff + i]);
+			if(c > 0xFF){
+				throw new RuntimeException("Char \"" + c + "\" does not fit in a byte");
+			}
+			dst[dstOff + i] = (byte) c;
+		}
+	}
+
 	/**
 	 * Encrypt a {@code String} using a {@code Crypto} object
 	 * @param s The {@code String} to encrypt
@@ -166,7 +265,171 @@ public final class Encoding {
 	 * @return The encrypted cipher
 	 */
 	public String encrypt(String s, Crypto c){
-		return this.encode(c.encrypt(this.decode(s)));
+		if(!isFused(c)){
+			return this.encode(c.encrypt(this.decode(s)));
+		}
+		char[] result = new char[s.length()];
+		this.transform(s, c, false, result, 0);
+		return new String(result);
+	}
+	
+	/**
+	 * Encrypt a message using a {@code Crypto} object, writing the cipher into a
+	 * caller-supplied array
+	 * @param s The message to encrypt
+	 * @param c The {@code Crypto} object used
+	 * @param dst The array that receives the encrypted cipher
+	 * @param dstOff The first element of {@code dst} to write
+	 */
+	public void encrypt(CharSequence s, Crypto c, char[] dst, int dstOff){
+		this.transform(s, c, false, dst, dstOff);
+	}
+	
+	/**
+	 * Encrypt a message using a {@code Crypto} object, putting the cipher into a
+	 * {@code CharBuffer} at its current position
+	 * @param s The message to encrypt
+	 * @param c The {@code Crypto} object used
+	 * @param dst The buffer that receives the encrypted cipher
+	 */
+	public void encrypt(CharSequence s, Crypto c, CharBuffer dst){
+		this.transform(s, c, false, dst);
+	}
+	
+	private void transform(CharSequence s, Crypto c, boolean decrypt, CharBuffer dst){
+		if(!isFused(c)){
+			int[] result = this.apply(s, c, decrypt);
+			if(dst.remaining() < result.length){
+				throw new BufferOverflowException();
+			}
+			for(int i : result){
+				dst.put(this.lookup(i));
+			}
+			return;
+		}
+		int len = s.length();
+		if(dst.remaining() < len){
+			throw new BufferOverflowException();
+		}
+		if(dst.hasArray()){
+			this.transform(s, c, decrypt, dst.array(), dst.arrayOffset() + dst.position());
+			dst.position(dst.position() + len);
+		}
+		else{
+			char[] result = new char[len];
+			this.transform(s, c, decrypt, result, 0);
+			dst.put(result);
+		}
+	}
+	
+	/**
+	 * Check if a {@code Crypto} maps each integer to exactly one integer, so that it
+	 * can be fed pieces of a reused buffer. Any other {@code Crypto} gets a fresh
+	 * array with the whole message through {@link Crypto#encrypt(int[])} or
+	 * {@link Crypto#decrypt(int[])}, and may return a result of any length.
+	 */
+	private static boolean isFused(Crypto c){
+		return c instanceof SymbolCrypto || c instanceof ChunkedCrypto;
+	}
+
+	private int[] apply(CharSequence s, Crypto c, boolean decrypt){
+		CryptoEvent event = CryptoMetrics.isEnabled() ? DECODE.begin() : null;
+		int[] x = new int[s.length()];
+		for(int i = 0; i < x.length; ++i){
+			x[i] = this.lookup(s.charAt(i));
+		}
+		if(event != null){
+			DECODE.end(event, "decode", x.length);
+		}
+		return decrypt ? c.decrypt(x) : c.encrypt(x);
+	}
+
+	/**
+	 * Go from characters to integers, through the {@code Crypto} and back to characters
+	 * in one pass. A {@code SymbolCrypto} is called symbol by symbol, and a
+	 * {@code ChunkedCrypto} is given small pieces of a per-thread buffer. A
+	 * {@code ParallelCrypto} is given the whole message, so that it can split it into
+	 * pieces on its pool. Any other
+	 * {@code Crypto} is called once with the whole message, and its result must have
+	 * the length of the message to fit in {@code dst}.
+	 * <p>
+	 * While {@code CryptoMetrics} is enabled, a {@code SymbolCrypto} goes through the
+	 * buffer as well, and the decoding and encoding of each piece are recorded, so
+	 * that they can be told apart from the time spent in the {@code Crypto}.
+	 */
+	private void transform(CharSequence s, Crypto c, boolean decrypt, char[] dst, int dstOff){
+		int len = s.length();
+		if(dstOff < 0 || dst.length - dstOff < len){
+			throw new ArrayIndexOutOfBoundsException("Not enough room for " + len + " chars at " + dstOff);
+		}
+		if(!isFused(c)){
+			int[] result = this.apply(s, c, decrypt);
+			if(result.length != len){
+				throw new RuntimeException("The Crypto gave " + result.length + " integers for " + len + " chars. Use the methods that return a String instead.");
+			}
+			CryptoEvent event = CryptoMetrics.isEnabled() ? ENCODE.begin() : null;
+			this.encode(result, 0, dst, dstOff, len);
+			if(event != null){
+				ENCODE.end(event, "encode", len);
+			}
+			return;
+		}
+		boolean metered = CryptoMetrics.isEnabled();
+		boolean parallel = c instanceof ParallelCrypto;
+		if(c instanceof SymbolCrypto && !metered && !parallel){
+			SymbolCrypto sc = (SymbolCrypto) c;
+			if(decrypt){
+				for(int i = 0; i < len; ++i){
+					dst[dstOff + i] = this.lookup(sc.decrypt(this.lookup(s.charAt(i))));
+				}
+			}
+			else{
+				for(int i = 0; i < len; ++i){
+					dst[dstOff + i] = this.lookup(sc.encrypt(this.lookup(s.charAt(i))));
+				}
+			}
+			return;
+		}
+		boolean chunked = c instanceof ChunkedCrypto;
+		// the whole message is claimed before the first piece, so a One Time Pad that
+		// is too short or already used is rejected before anything is written
+		ChunkedCrypto cc = chunked ? ((ChunkedCrypto) c).claim(0, len) : null;
+		int chunk = parallel ? len : Math.min(len, FUSED_CHUNK);
+		int[] buf = chunk > FUSED_CHUNK ? new int[chunk] : SCRATCH.get();
+		int start = 0;
+		do{
+			int n = Math.min(chunk, len - start);
+			CryptoEvent event = metered ? DECODE.begin() : null;
+			for(int i = 0; i < n; ++i){
+				buf[i] = this.lookup(s.charAt(start + i));
+			}
+			if(metered){
+				DECODE.end(event, "decode", n);
+			}
+			if(chunked){
+				if(decrypt){
+					cc.decrypt(buf, 0, buf, 0, n, start);
+				}
+				else{
+					cc.encrypt(buf, 0, buf, 0, n, start);
+				}
+			}
+			else if(decrypt){
+				c.decryptInPlace(buf, 0, n);
+			}
+			else{
+				c.encryptInPlace(buf, 0, n);
+			}
+			event = metered ? ENCODE.begin() : null;
+			for(int i = 0; i < n; ++i){
+				dst[dstOff + start + i] = this.lookup(buf[i]);
+			}
+			if(metered){
+				ENCODE.end(event, "encode", n);
+			}
+			start += n;
+		}
+		while(start < len);
 	}
 	
 	/**
@@ -237,5 +500,23 @@ public final class Encoding {
 				this.charIntMap.put(otherCase, i);
 			}
 		}
+		this.charTable = buildTable(this.charIntMap);
+		this.intTable = buildTable(this.intCharMap);
+	}
+	
+	private static <K, V> SymbolTable buildTable(Map<K, V> map){
+		int[] keys = new int[map.size()];
+		int[] values = new int[map.size()];
+		int n = 0;
+		for(Map.Entry<K, V> entry : map.entrySet()){
+			keys[n] = toInt(entry.getKey());
+			values[n] = toInt(entry.getValue());
+			++n;
+		}
+		return SymbolTable.of(keys, values);
+	}
+	
+	private static int toInt(Object o){
+		return o instanceof Character ? (Character) o : (Integer) o;
 	}
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Arrays;
+
+/**
+ * A precomputed sliding-window decomposition of a fixed exponent, for raising many
+ * different bases to the same power modulo the same odd modulus (e.g. the {@code e}
+ * and {@code d} of an RSA key). The exponent is split once into runs of squarings
+ * followed by a multiplication with an odd power of the base, so each exponentiation
+ * only needs the small table of odd powers of its base.
+ * @author Nathaniel
+ *
+ */
+
+final class ExponentPlan {
+
+	private final Montgomery montgomery;
+	private final int window;
+	// Step i squares the result squares[i] times, then multiplies it by base^digits[i]
+	private final int[] squares;
+	private final int[] digits;
+
+	ExponentPlan(Montgomery montgomery, long expo) {
+		if(expo < 0){
+			throw new RuntimeException("Illegal value " + expo + ". It must be non-negative.");
+		}
+		int bits = 64 - Long.numberOfLeadingZeros(expo);
+		this.montgomery = montgomery;
+		this.window = window(bits);
+		int[] squares = new int[bits + 1];
+		int[] digits = new int[bits + 1];
+		int steps = 0;
+		int zeros = 0;
+		for(int i = bits - 1; i >= 0; ){
+			if(((expo >>> i) & 1) == 0){
+				++zeros;
+				--i;
+				continue;
+			}
+			int j = Math.max(i - this.window + 1, 0);
+			while(((expo >>> j) & 1) == 0){
+				++j;
+			}
+			squares[steps] = zeros + (i - j + 1);
+			digits[steps] = (int) ((expo >>> j) & ((1L << (i - j + 1)) - 1));
+			++steps;
+			zeros = 0;
+			i = j - 1;
+		}
+		if(zeros > 0){
+			squares[steps] = zeros;
+			digits[steps] = 0;
+			++steps;
+		}
+		this.squares = Arrays.copyOf(squares, steps);
+		this.digits = Arrays.copyOf(digits, steps);
+	}
+
+	/**
+	 * Choose the window for an exponent of the given size. Besides the squarings, a
+	 * window of w bits needs 2^(w - 1) multiplications to build the table of odd
+	 * powers and about bits / (w + 1) to use it; the sizes below are where the next
+	 * window becomes cheaper in total.
+	 * @param bits The number of bits of the exponent
+	 * @return The window, in bits
+	 */
+	static int window(int bits){
+		if(bits <= 8){
+			return 1;
+		}
+		if(bits <= 24){
+			return 2;
+		}
+		return 3;
+	}
+
+	/**
+	 * Raise a base to the exponent of this plan
+	 * @param base An integer in [0, modulus)
+	 * @return base^expo (mod modulus)
+	 */
+	long pow(long base){
+		Montgomery m = this.montgomery;
+		if(this.digits.length == 0){
+			return 1 % m.getModulus();
+		}
+		long b = m.toMontgomery(base);
+		if(this.window == 1){
+			return this.powBinary(b);
+		}
+		// odd[k] = base^(2k+1) in Montgomery form
+		long[] odd = new long[1 << (this.window - 1)];
+		odd[0] = b;
+		long square = m.multiply(b, b);
+		for(int k = 1; k < odd.length; ++k){
+			odd[k] = m.multiply(odd[k - 1], square);
+		}
+		// The first step starts from 1, so its squarings can be skipped
+		long result = odd[this.digits[0] >>> 1];
+		for(int i = 1; i < this.digits.length; ++i){
+			for(int s = this.squares[i]; s > 0; --s){
+				result = m.multiply(result, result);
+			}
+			if(this.digits[i] != 0){
+				result = m.multiply(result, odd[this.digits[i] >>> 1]);
+			}
+		}
+		return m.fromMontgomery(result);
+	}
+
+	private long powBinary(long b){
+		Montgomery m = this.montgomery;
+		long result = b;
+		for(int i = 1; i < this.digits.length; ++i){
+			for(int s = this.squares[i]; s > 0; --s){
+				result = m.multiply(result, result);
+			}
+			if(this.digits[i] != 0){
+				result = m.multiply(result, b);
+			}
+		}
+		return m.fromMontgomery(result);
+	}
+
+}
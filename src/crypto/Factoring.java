@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Factoring of 64-bit integers. Small factors are found by trial division by the
+ * primes of the shared {@code PrimeSieve}; the rest by Pollard's rho algorithm with
+ * Brent's cycle detection, in Montgomery form so that no multiplication overflows.
+ * Several walks with different constants run at the same time on the common
+ * {@code ForkJoinPool}, and all of them stop as soon as one finds a factor.
+ * @author Nathaniel
+ *
+ */
+
+final class Factoring {
+
+	// Trial division is done by the primes below this bound
+	static final int TRIAL_LIMIT = 1 << 16;
+
+	// The number of steps of a walk between two gcds
+	private static final int BATCH = 128;
+
+	/**
+	 * Find a factor of a positive integer
+	 * @param n A positive integer
+	 * @return A factor f of n with 1 &lt; f &lt; n, or n itself if n is 1 or a prime
+	 */
+	static long factor(long n){
+		if(n <= 0){
+			throw new RuntimeException("Illegal value " + n + ". It must be positive.");
+		}
+		if(n < 4){
+			return n;
+		}
+		long small = trialDivision(n);
+		if(small != 0){
+			return small;
+		}
+		if(n < (long) TRIAL_LIMIT * TRIAL_LIMIT || DiscreteMath.isPrime(n)){
+			return n;
+		}
+		return rho(n);
+	}
+
+	/**
+	 * Get the prime factors of a positive integer
+	 * @param n A positive integer
+	 * @return The prime factors of n in ascending order, repeated by multiplicity
+	 */
+	static long[] factorize(long n){
+		List<Long> factors = new ArrayList<Long>();
+		factorize(n, factors);
+		long[] result = new long[factors.size()];
+		for(int i = 0; i < result.length; ++i){
+			result[i] = factors.get(i);
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	private static void factorize(long n, List<Long> factors){
+		while(n > 1){
+			long f = factor(n);
+			if(f == n){
+				factors.add(n);
+				return;
+			}
+			factorize(f, factors);
+			n /= f;
+		}
+	}
+
+	// The smallest prime factor of n below TRIAL_LIMIT, or 0 if there is none
+	private static long trialDivision(long n){
+		PrimeSieve.Table table = PrimeSieve.SHARED.table(TRIAL_LIMIT);
+		for(int i = 0; i < table.count; ++i){
+			int p = table.primes[i];
+			if((long) p * p > n){
+				return 0;
+			}
+			if(n % p == 0){
+				return p;
+			}
+		}
+		return 0;
+	}
+
+	private static long rho(long n){
+		final Montgomery m = new Montgomery(n);
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicLong result = new AtomicLong();
+		final int walks = ForkJoinPool.commonPool().getParallelism();
+		List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(walks);
+		for(int w = 0; w < walks; ++w){
+			final int first = w + 1;
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					for(long c = first; !done.get(); c += walks){
+						long g = brent(m, m.toMontgomery(c), m.toMontgomery(2), done);
+						if(g != 0 && done.compareAndSet(false, true)){
+							result.set(g);
+						}
+					}
+				}
+			});
+		}
+		ForkJoinTask.invokeAll(tasks);
+		return result.get();
+	}
+
+	/**
+	 * One walk of x -> x^2 + c (mod n) from x0, with all values in Montgomery form
+	 * @return A factor f of n with 1 &lt; f &lt; n, or 0 if the walk failed or was cancelled
+	 */
+	private static long brent(Montgomery m, long c, long x0, AtomicBoolean done){
+		long n = m.getModulus();
+		long one = m.toMontgomery(1);
+		long y = x0;
+		long x = x0;
+		long ys = x0;
+		long q = one;
+		long g = 1;
+		for(long r = 1; g == 1; r <<= 1){
+			x = y;
+			for(long i = 0; i < r; ++i){
+				y = step(m, y, c, n);
+			}
+			for(long k = 0; k < r && g == 1; k += BATCH){
+				if(done.get()){
+					return 0;
+				}
+				ys = y;
+				for(long i = Math.min(BATCH, r - k); i > 0; --i){
+					y = step(m, y, c, n);
+					q = m.multiply(q, x > y ? x - y : y - x);
+				}
+				g = q == 0 ? n : DiscreteMath.gcdBinary(q, n);
+			}
+		}
+		if(g == n){
+			// the batch overshot: redo it one step at a time
+			do{
+				ys = step(m, ys, c, n);
+				g = x == ys ? n : DiscreteMath.gcdBinary(x > ys ? x - ys : ys - x, n);
+			}
+			while(g == 1);
+		}
+		return g == n ? 0 : g;
+	}
+
+	private static long step(Montgomery m, long y, long c, long n){
+		long s = m.multiply(y, y) + c;
+		return Long.compareUnsigned(s, n) >= 0 ? s - n : s;
+	}
+
+	private Factoring(){
+
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Encrypts/decrypts whole files of bytes through memory-mapped windows, so that
+ * files far larger than the heap (or than a {@code String}) can be processed. Each
+ * byte is the integer it stands for, as in {@code Encoding.ASCII}; no characters or
+ * integer arrays are created. The built-in Caesar, Affine, Vigenere and One Time Pad
+ * ciphers with a divisor of at most 256 are supported; see {@code ByteKernel}. The
+ * result is the same as encrypting the bytes one by one, so e.g. a Vigenere key runs
+ * on across windows.
+ * @author Nathaniel
+ *
+ */
+
+public final class FileCrypto {
+
+	/**
+	 * The default number of bytes mapped at a time
+	 */
+	public static final int DEFAULT_WINDOW = 1 << 26;
+
+	// The largest number of bytes processed by a single thread in parallel mode
+	private static final int PIECE = 1 << 20;
+
+	/**
+	 * Encrypt a file
+	 * @param in The file to encrypt
+	 * @param out The file that receives the result, other than {@code in}; it is created or overwritten
+	 * @param crypto The {@code Crypto} object used
+	 * @return The number of bytes encrypted
+	 * @throws IOException If reading or writing fails
+	 */
+	public static long encrypt(Path in, Path out, Crypto crypto) throws IOException {
+		return transform(in, out, crypto, false, false, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Decrypt a file
+	 * @param in The file to decrypt
+	 * @param out The file that receives the result, other than {@code in}; it is created or overwritten
+	 * @param crypto The {@code Crypto} object used
+	 * @return The number of bytes decrypted
+	 * @throws IOException If reading or writing fails
+	 */
+	public static long decrypt(Path in, Path out, Crypto crypto) throws IOException {
+		return transform(in, out, crypto, true, false, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Encrypt/decrypt a file
+	 * @param in The input file
+	 * @param out The file that receives the result, other than {@code in}; it is created or overwritten
+	 * @param crypto The {@code Crypto} object used
+	 * @param decrypt {@code True} to decrypt; {@code false} to encrypt
+	 * @param parallel {@code True} to process each window in pieces on the common {@code ForkJoinPool}
+	 * @param window The number of bytes mapped at a time
+	 * @return The number of bytes processed
+	 * @throws IOException If reading or writing fails
+	 */
+	public static long transform(Path in, Path out, Crypto crypto, boolean decrypt, boolean parallel, int window) throws IOException {
+		if(window <= 0){
+			throw new RuntimeException("Illegal window " + window + ". It must be positive.");
+		}
+		// out is truncated when it is opened, which would wipe the input first
+		if(Files.exists(out) && Files.isSameFile(in, out)){
+			throw new RuntimeException("Illegal output " + out + ". It must be a different file from the input.");
+		}
+		try(FileChannel src = FileChannel.open(in, StandardOpenOption.READ);
+				FileChannel dst = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.READ,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			long size = src.size();
+			ByteKernel kernel = ByteKernel.of(crypto, decrypt, size);
+			for(long offset = 0; offset < size; offset += window){
+				int len = (int) Math.min(window, size - offset);
+				MappedByteBuffer source = src.map(FileChannel.MapMode.READ_ONLY, offset, len);
+				MappedByteBuffer target = dst.map(FileChannel.MapMode.READ_WRITE, offset, len);
+				if(parallel && len > PIECE){
+					ForkJoinPool.commonPool().invoke(new Piece(kernel, source, target, 0, len, offset));
+				}
+				else{
+					kernel.apply(source, target, 0, len, offset);
+				}
+			}
+			return size;
+		}
+	}
+
+	private static final class Piece extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteKernel kernel;
+		private final MappedByteBuffer src;
+		private final MappedByteBuffer dst;
+		private final int from;
+		private final int to;
+		private final long position;
+
+		Piece(ByteKernel kernel, MappedByteBuffer src, MappedByteBuffer dst, int from, int to, long position) {
+			this.kernel = kernel;
+			this.src = src;
+			this.dst = dst;
+			this.from = from;
+			this.to = to;
+			this.position = position;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from <= PIECE){
+				this.kernel.apply(this.src, this.dst, this.from, this.to, this.position);
+				return;
+			}
+			int mid = (this.from + this.to) >>> 1;
+			invokeAll(new Piece(this.kernel, this.src, this.dst, this.from, mid, this.position),
+					new Piece(this.kernel, this.src, this.dst, mid, this.to, this.position + (mid - this.from)));
+		}
+
+	}
+
+	private FileCrypto() {
+
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * A {@code Crypto} that records every call to another {@code Crypto} in the
+ * {@code CryptoMetrics} of a name, while instrumentation is on. The wrapper keeps
+ * the capabilities of the {@code Crypto} it wraps, so that {@code Encoding} and the
+ * streams take the same fast paths with and without it: a {@code ChunkedCrypto} is
+ * measured a piece at a time, and a {@code SymbolCrypto} as well, since
+ * {@code Encoding} hands it pieces of a buffer while instrumentation is on. Calls for
+ * a single symbol are too short to be timed and are not recorded.
+ * @author Nathaniel
+ *
+ */
+
+class InstrumentedCrypto implements Crypto {
+
+	private static final String ENCRYPT = "encrypt";
+	private static final String DECRYPT = "decrypt";
+
+	final Crypto crypto;
+	final CryptoMetrics metrics;
+
+	InstrumentedCrypto(Crypto crypto, CryptoMetrics metrics) {
+		this.crypto = crypto;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Get a {@code Crypto} that records its calls under the given name
+	 * @param crypto The {@code Crypto} that does the actual work
+	 * @param name The name of the counters
+	 * @return A {@code Crypto} object
+	 */
+	static Crypto of(Crypto crypto, String name){
+		CryptoMetrics metrics = CryptoMetrics.of(name);
+		if(crypto instanceof SymbolCrypto){
+			return new Symbol((SymbolCrypto) crypto, metrics);
+		}
+		if(crypto instanceof ChunkedCrypto){
+			return new Chunked(crypto, metrics);
+		}
+		return new InstrumentedCrypto(crypto, metrics);
+	}
+
+	@Override
+	public int[] decrypt(int[] y) {
+		if(!CryptoMetrics.isEnabled()){
+			return this.crypto.decrypt(y);
+		}
+		CryptoEvent event = this.metrics.begin();
+		int[] result = this.crypto.decrypt(y);
+		this.metrics.end(event, DECRYPT, y.length);
+		return result;
+	}
+
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		if(!CryptoMetrics.isEnabled()){
+			this.crypto.decrypt(src, srcOff, dst, dstOff, len);
+			return;
+		}
+		CryptoEvent event = this.metrics.begin();
+		this.crypto.decrypt(src, srcOff, dst, dstOff, len);
+		this.metrics.end(event, DECRYPT, len);
+	}
+
+	@Override
+	public int[] encrypt(int[] x) {
+		if(!CryptoMetrics.isEnabled()){
+			return this.crypto.encrypt(x);
+		}
+		CryptoEvent event = this.metrics.begin();
+		int[] result = this.crypto.encrypt(x);
+		this.metrics.end(event, ENCRYPT, x.length);
+		return result;
+	}
+
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		if(!CryptoMetrics.isEnabled()){
+			this.crypto.encrypt(src, srcOff, dst, dstOff, len);
+			return;
+		}
+		CryptoEvent event = this.metrics.begin();
+		this.crypto.encrypt(src, srcOff, dst, dstOff, len);
+		this.metrics.end(event, ENCRYPT, len);
+	}
+
+	/**
+	 * An instrumented {@code ChunkedCrypto}, or {@code SymbolCrypto}, which does not
+	 * depend on positions at all
+	 */
+	static class Chunked extends InstrumentedCrypto implements ChunkedCrypto {
+
+		Chunked(Crypto crypto, CryptoMetrics metrics) {
+			super(crypto, metrics);
+		}
+
+		@Override
+		public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+			if(!CryptoMetrics.isEnabled()){
+				this.run(src, srcOff, dst, dstOff, len, position, true);
+				return;
+			}
+			CryptoEvent event = this.metrics.begin();
+			this.run(src, srcOff, dst, dstOff, len, position, true);
+			this.metrics.end(event, DECRYPT, len);
+		}
+
+		@Override
+		public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+			if(!CryptoMetrics.isEnabled()){
+				this.run(src, srcOff, dst, dstOff, len, position, false);
+				return;
+			}
+			CryptoEvent event = this.metrics.begin();
+			this.run(src, srcOff, dst, dstOff, len, position, false);
+			this.metrics.end(event, ENCRYPT, len);
+		}
+
+		@Override
+		public ChunkedCrypto claim(long position, long length){
+			if(this.crypto instanceof ChunkedCrypto){
+				return new Chunked(((ChunkedCrypto) this.crypto).claim(position, length), this.metrics);
+			}
+			return this;
+		}
+
+		private void run(int[] src, int srcOff, int[] dst, int dstOff, int len, long position, boolean decrypt){
+			if(this.crypto instanceof ChunkedCrypto){
+				ChunkedCrypto c = (ChunkedCrypto) this.crypto;
+				if(decrypt){
+					c.decrypt(src, srcOff, dst, dstOff, len, position);
+				}
+				else{
+					c.encrypt(src, srcOff, dst, dstOff, len, position);
+				}
+			}
+			else if(decrypt){
+				this.crypto.decrypt(src, srcOff, dst, dstOff, len);
+			}
+			else{
+				this.crypto.encrypt(src, srcOff, dst, dstOff, len);
+			}
+		}
+
+	}
+
+	/**
+	 * An instrumented {@code SymbolCrypto}
+	 */
+	static final class Symbol extends Chunked implements SymbolCrypto {
+
+		private final SymbolCrypto symbols;
+
+		Symbol(SymbolCrypto crypto, CryptoMetrics metrics) {
+			super(crypto, metrics);
+			this.symbols = crypto;
+		}
+
+		@Override
+		public int decrypt(int y) {
+			return this.symbols.decrypt(y);
+		}
+
+		@Override
+		public int encrypt(int x) {
+			return this.symbols.encrypt(x);
+		}
+
+	}
+
+}
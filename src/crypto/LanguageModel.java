@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * Character frequencies of English text, turned into a table of log-probabilities
+ * indexed by the integers of an {@code Encoding}. The solvers score a candidate
+ * plaintext by adding up the log-probabilities of its symbols. The table is kept by
+ * the {@code Encoding} itself, so it is built once, looked up without hashing the
+ * {@code Encoding}, and dropped along with it.
+ * @author Nathaniel
+ *
+ */
+
+final class LanguageModel {
+
+	// Relative frequencies of a to z in English text
+	private static final double[] LETTERS = {
+		8.167, 1.492, 2.782, 4.253, 12.702, 2.228, 2.015, 6.094, 6.966, 0.153, 0.772, 4.025, 2.406,
+		6.749, 7.507, 1.929, 0.095, 5.987, 6.327, 9.056, 2.758, 0.978, 2.360, 0.150, 1.974, 0.074
+	};
+
+	private static final double LOWER_SHARE = 0.74;
+	private static final double UPPER_SHARE = 0.04;
+	private static final double SPACE = 0.17;
+	private static final double PUNCTUATION = 0.01;
+	private static final double FLOOR = 1e-5;
+
+	/**
+	 * Get the log-probability of each integer in [0, divisor) of an {@code Encoding}
+	 * @param encoding The {@code Encoding} the symbols come from
+	 * @param divisor The number of symbols
+	 * @return A shared table; it must not be modified
+	 */
+	static double[] logProbabilities(Encoding encoding, int divisor){
+		double[] table = encoding.getLanguageModel();
+		// one table is kept, for the last divisor asked for; an Encoding is normally
+		// solved with a single divisor
+		if(table == null || table.length != divisor){
+			table = build(encoding, divisor);
+			encoding.setLanguageModel(table);
+		}
+		return table;
+	}
+
+	private static double probability(char c){
+		if(c >= 'a' && c <= 'z'){
+			return LOWER_SHARE * LETTERS[c - 'a'] / 100;
+		}
+		if(c >= 'A' && c <= 'Z'){
+			return UPPER_SHARE * LETTERS[c - 'A'] / 100;
+		}
+		if(c == ' '){
+			return SPACE;
+		}
+		if(c == '.' || c == ',' || c == '\n'){
+			return PUNCTUATION;
+		}
+		return FLOOR;
+	}
+
+	private static double[] build(Encoding encoding, int divisor){
+		double[] p = new double[divisor];
+		double total = 0;
+		for(int i = 0; i < divisor; ++i){
+			p[i] = encoding.hasRegistered(i) ? probability(encoding.encode(i)) : FLOOR;
+			total += p[i];
+		}
+		for(int i = 0; i < divisor; ++i){
+			p[i] = Math.log(p[i] / total);
+		}
+		return p;
+	}
+
+	/**
+	 * Get the number of symbols of an {@code Encoding}, taken as one more than the
+	 * largest integer it defines
+	 * @param encoding The {@code Encoding}
+	 * @return The divisor
+	 */
+	static int divisor(Encoding encoding){
+		int max = -1;
+		for(Integer i : encoding.getIntCharMap().keySet()){
+			max = Math.max(max, i);
+		}
+		if(max < 0){
+			throw new RuntimeException("The encoding defines no non-negative integer");
+		}
+		return max + 1;
+	}
+
+	private LanguageModel(){
+
+	}
+
+}
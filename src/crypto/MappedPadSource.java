@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A One Time Pad in a memory-mapped file, one value per byte. A file larger than a
+ * single mapping allows is mapped in several windows. Reads use absolute indices only,
+ * so any number of threads may read the pad at the same time.
+ * @author Nathaniel
+ *
+ */
+
+class MappedPadSource implements PadSource {
+
+	private static final int WINDOW_BITS = 30;
+	private static final int WINDOW = 1 << WINDOW_BITS;
+
+	private final MappedByteBuffer[] windows;
+	private final long length;
+
+	MappedPadSource(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			this.length = channel.size();
+			this.windows = new MappedByteBuffer[(int) ((this.length + WINDOW - 1) >>> WINDOW_BITS)];
+			for(int w = 0; w < this.windows.length; ++w){
+				long start = (long) w << WINDOW_BITS;
+				this.windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, this.length - start));
+			}
+		}
+	}
+
+	@Override
+	public long length() {
+		return this.length;
+	}
+
+	@Override
+	public void read(long offset, int[] dst, int dstOff, int len) {
+		if(offset < 0 || offset + len > this.length){
+			throw new RuntimeException("This one time pad is not long enough");
+		}
+		while(len > 0){
+			MappedByteBuffer window = this.windows[(int) (offset >>> WINDOW_BITS)];
+			int from = (int) (offset & (WINDOW - 1));
+			int n = Math.min(len, window.limit() - from);
+			for(int i = 0; i < n; ++i){
+				dst[dstOff + i] = window.get(from + i) & 0xFF;
+			}
+			offset += n;
+			dstOff += n;
+			len -= n;
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * Modular arithmetic in Montgomery form for a fixed odd modulus below 2^63.
+ * A value x is kept as x * 2^64 (mod n), which turns every modular multiplication
+ * into two 64x64-bit multiplications and no division. The constants for the modulus
+ * are computed once, so an instance should be kept and reused for the same modulus.
+ * @author Nathaniel
+ *
+ */
+
+final class Montgomery {
+
+	private final long modulus;
+	// -modulus^(-1) mod 2^64
+	private final long inverse;
+	// 2^64 mod modulus, i.e. 1 in Montgomery form
+	private final long one;
+	// 2^128 mod modulus
+	private final long r2;
+
+	Montgomery(long modulus) {
+		if(modulus <= 1 || (modulus & 1) == 0){
+			throw new RuntimeException("Illegal modulus " + modulus + ". It must be odd and greater than 1.");
+		}
+		this.modulus = modulus;
+		long x = modulus;
+		// Newton's iteration doubles the number of correct low bits each round: 3, 6, ..., 96
+		for(int i = 0; i < 5; ++i){
+			x *= 2 - modulus * x;
+		}
+		this.inverse = -x;
+		this.one = Long.remainderUnsigned(-modulus, modulus);
+		this.r2 = DiscreteMath.mulModReduced(this.one, this.one, modulus);
+	}
+
+	long getModulus(){
+		return this.modulus;
+	}
+
+	private long reduce(long hi, long lo){
+		long u = lo * this.inverse;
+		long t = hi + DiscreteMath.unsignedMultiplyHigh(u, this.modulus) + (lo != 0 ? 1 : 0);
+		return Long.compareUnsigned(t, this.modulus) >= 0 ? t - this.modulus : t;
+	}
+
+	/**
+	 * Multiply two values in Montgomery form
+	 */
+	long multiply(long a, long b){
+		return this.reduce(DiscreteMath.unsignedMultiplyHigh(a, b), a * b);
+	}
+
+	/**
+	 * Convert a non-negative value into Montgomery form
+	 */
+	long toMontgomery(long x){
+		return this.multiply(x % this.modulus, this.r2);
+	}
+
+	/**
+	 * Convert a value in Montgomery form back to its ordinary value
+	 */
+	long fromMontgomery(long x){
+		return this.reduce(0, x);
+	}
+
+	/**
+	 * Calculate base^expo (mod modulus) by square-and-multiply
+	 * @param base A non-negative integer
+	 * @param expo A non-negative integer
+	 * @return base^expo (mod modulus)
+	 */
+	long pow(long base, long expo){
+		long b = this.toMontgomery(base);
+		long result = this.one;
+		for(int i = 63 - Long.numberOfLeadingZeros(expo); i >= 0; --i){
+			result = this.multiply(result, result);
+			if(((expo >>> i) & 1) == 1){
+				result = this.multiply(result, b);
+			}
+		}
+		return this.fromMontgomery(result);
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long One Time Pad that serves many messages in sequence. Every call to
+ * {@link #next(long)} takes the next unused range of the pad and returns a
+ * {@code Crypto} for it, so no two messages are ever encrypted with the same pad
+ * values, even if they are taken by many threads at once. The range taken so far is
+ * given by {@link #position()}; store it and pass it to the constructor to resume
+ * with the same pad later.
+ * <p>
+ * Taking a range is a single compare-and-set, but many threads that each take a
+ * small range still compete for it. {@link #split(int, long)} takes the ranges for a
+ * whole group of workers at once and hands every worker its own segment, so that
+ * the workers never touch the shared cursor.
+ * @author Nathaniel
+ *
+ */
+
+public class OneTimePad {
+
+	private final PadSource source;
+	private final int divisor;
+	private final AtomicLong cursor;
+
+	/**
+	 * Create a {@code OneTimePad} that starts at the beginning of the pad
+	 * @param source The values of the pad
+	 * @param divisor The "n" in "x mod n", used in the modulus operation
+	 */
+	public OneTimePad(PadSource source, int divisor) {
+		this(source, divisor, 0);
+	}
+
+	/**
+	 * Create a {@code OneTimePad} that resumes at a position of the pad
+	 * @param source The values of the pad
+	 * @param divisor The "n" in "x mod n", used in the modulus operation
+	 * @param position The number of pad values used before
+	 */
+	public OneTimePad(PadSource source, int divisor, long position) {
+		if(position < 0 || position > source.length()){
+			throw new RuntimeException("Illegal position " + position + ". It must be in [0, " + source.length() + "].");
+		}
+		this.source = source;
+		this.divisor = divisor;
+		this.cursor = new AtomicLong(position);
+	}
+
+	/**
+	 * Take the next range of the pad
+	 * @param length The length of the message to encrypt/decrypt
+	 * @return A {@code Crypto} object that can encrypt/decrypt one message of at most {@code length} elements
+	 */
+	public Crypto next(long length){
+		if(length < 0){
+			throw new RuntimeException("Illegal length " + length + ". It must be non-negative.");
+		}
+		return new OneTimePadCrypto(this.source, this.take(length), length, this.divisor);
+	}
+
+	/**
+	 * Take the next ranges of the pad for a group of workers, all in one step. Segment
+	 * i covers the {@code length} pad values after segment i - 1, so the segments never
+	 * overlap, and giving segment i to worker i needs no further synchronization.
+	 * @param count The number of segments
+	 * @param length The length of the message each segment can encrypt/decrypt
+	 * @return {@code count} {@code Crypto} objects, each for one message of at most {@code length} elements
+	 */
+	public Crypto[] split(int count, long length){
+		if(count < 0){
+			throw new RuntimeException("Illegal count " + count + ". It must be non-negative.");
+		}
+		if(length < 0){
+			throw new RuntimeException("Illegal length " + length + ". It must be non-negative.");
+		}
+		if(length > 0 && count > Long.MAX_VALUE / length){
+			throw new RuntimeException("This one time pad is not long enough");
+		}
+		long start = this.take(count * length);
+		Crypto[] segments = new Crypto[count];
+		for(int i = 0; i < count; ++i){
+			segments[i] = new OneTimePadCrypto(this.source, start + i * length, length, this.divisor);
+		}
+		return segments;
+	}
+
+	private long take(long length){
+		long start;
+		do{
+			start = this.cursor.get();
+			if(length > this.source.length() - start){
+				throw new RuntimeException("This one time pad is not long enough");
+			}
+		}
+		while(!this.cursor.compareAndSet(start, start + length));
+		return start;
+	}
+
+	/**
+	 * Get the number of pad values taken so far
+	 * @return The position of the next range
+	 */
+	public long position(){
+		return this.cursor.get();
+	}
+
+	/**
+	 * Get the number of pad values not taken yet
+	 * @return The remaining length of the pad
+	 */
+	public long remaining(){
+		return this.source.length() - this.cursor.get();
+	}
+
+}
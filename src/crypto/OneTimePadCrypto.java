@@ -4,46 +4,213 @@
 
 package crypto;
 
-public class OneTimePadCrypto implements Crypto {
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One Time Pad Cipher. The pad comes from a {@code PadSource}, and a message is
+ * encrypted with the values from {@code offset} on, so that a long pad can be split
+ * into ranges for many messages (see {@code OneTimePad}). Each object can only be
+ * used for one message, and every pad value is used at most once: each call claims
+ * the pad values of its piece atomically, and a piece must start where the pieces
+ * claimed before it end, so a message is claimed from position 0 on. Of many
+ * threads that start a message with the same object at once, exactly one succeeds
+ * and the others get an exception. To encrypt/decrypt the pieces of a message in any
+ * order (e.g. in parallel), the whole message is claimed at once by
+ * {@link #claim(long, long)} first.
+ * @author Nathaniel
+ *
+ */
+
+public class OneTimePadCrypto implements ChunkedCrypto {
 	
-	private int[] pad;
-	private int divisor;
-	private boolean used;
+	// The number of pad values read from a PadSource at a time
+	private static final int PAD_CHUNK = 1024;
+
+	private final PadSource source;
+	// The pad itself if the source is an array, so that it is not copied
+	private final int[] array;
+	private final long offset;
+	private final long length;
+	private final int divisor;
+	// The position up to which the pad has been claimed
+	private final AtomicLong claimed = new AtomicLong();
 	
 	public OneTimePadCrypto(int[] pad, int divisor) {
-		this.pad = pad;
-		this.divisor = divisor;
+		this(PadSource.of(pad), divisor);
+	}
+	
+	public OneTimePadCrypto(PadSource pad, int divisor) {
+		this(pad, 0, pad.length(), divisor);
 	}
 	
-	private void checkConditions(int[] a){
-		if(used){
-			throw new RuntimeException("This one time pad has been used");
+	OneTimePadCrypto(PadSource source, long offset, long length, int divisor) {
+		if(offset < 0 || length < 0 || offset + length > source.length()){
+			throw new RuntimeException("This one time pad is not long enough");
 		}
-		if(a.length > this.pad.length){
+		this.source = source;
+		this.array = source instanceof ArrayPadSource ? ((ArrayPadSource) source).getPad() : null;
+		this.offset = offset;
+		this.length = length;
+		this.divisor = divisor;
+	}
+	
+	PadSource getSource(){
+		return this.source;
+	}
+
+	long getOffset(){
+		return this.offset;
+	}
+
+	int getDivisor(){
+		return this.divisor;
+	}
+
+	void checkConditions(long length, long position){
+		if(position < 0 || length < 0 || position > this.length - length){
 			throw new RuntimeException("This one time pad is not long enough");
 		}
+		if(!this.claimed.compareAndSet(position, position + length)){
+			if(position < this.claimed.get()){
+				throw new RuntimeException("This one time pad has been used");
+			}
+			throw new RuntimeException("Illegal position " + position + ". The pieces of a message must follow each other from position 0.");
+		}
+	}
+
+	/**
+	 * Claim the pad values of a whole message, whose pieces may then be
+	 * encrypted/decrypted in any order through the object returned
+	 */
+	@Override
+	public ChunkedCrypto claim(long position, long length){
+		this.checkConditions(length, position);
+		return new Claimed(position, position + length);
+	}
+
+	private void transform(int[] src, int srcOff, int[] dst, int dstOff, int len, long position, boolean decrypt){
+		this.checkConditions(len, position);
+		this.apply(src, srcOff, dst, dstOff, len, position, decrypt);
+	}
+
+	private void apply(int[] src, int srcOff, int[] dst, int dstOff, int len, long position, boolean decrypt){
+		if(this.divisor <= 0){
+			throw new RuntimeException("Illegal divisor " + this.divisor + ". It must be positive.");
+		}
+		if(this.array != null){
+			CipherKernels.BEST.pad(src, srcOff, this.array, (int) (this.offset + position), dst, dstOff, len, decrypt, this.divisor);
+			return;
+		}
+		int[] pad = new int[Math.min(len, PAD_CHUNK)];
+		for(int done = 0; done < len; done += pad.length){
+			int n = Math.min(pad.length, len - done);
+			this.source.read(this.offset + position + done, pad, 0, n);
+			CipherKernels.BEST.pad(src, srcOff + done, pad, 0, dst, dstOff + done, n, decrypt, this.divisor);
+		}
 	}
 
 	@Override
 	public int[] decrypt(int[] y) {
-		this.checkConditions(y);
 		int[] result = new int[y.length];
-		for(int i = 0; i < y.length; ++i){
-			result[i] = (int) DiscreteMath.mod(y[i] - this.pad[i], this.divisor);
-		}
-		this.used = true;
+		this.decrypt(y, 0, result, 0, y.length);
 		return result;
 	}
 
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		this.decrypt(src, srcOff, dst, dstOff, len, 0);
+	}
+
+	/**
+	 * The piece at position 0 starts a new message. Later pieces of the same message
+	 * must follow, each starting where the one before it ends.
+	 */
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+		this.transform(src, srcOff, dst, dstOff, len, position, true);
+	}
+
 	@Override
 	public int[] encrypt(int[] x) {
-		this.checkConditions(x);
 		int[] result = new int[x.length];
-		for(int i = 0; i < x.length; ++i){
-			result[i] = (int) DiscreteMath.mod(this.pad[i] + x[i], this.divisor);
-		}
-		this.used = true;
+		this.encrypt(x, 0, result, 0, x.length);
 		return result;
 	}
 
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		this.encrypt(src, srcOff, dst, dstOff, len, 0);
+	}
+
+	/**
+	 * The piece at position 0 starts a new message. Later pieces of the same message
+	 * must follow, each starting where the one before it ends.
+	 */
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+		this.transform(src, srcOff, dst, dstOff, len, position, false);
+	}
+
+	/**
+	 * The pieces of a claimed range of the pad, in any order
+	 */
+	private final class Claimed implements ChunkedCrypto {
+
+		private final long from;
+		private final long to;
+
+		Claimed(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		private void transform(int[] src, int srcOff, int[] dst, int dstOff, int len, long position, boolean decrypt){
+			this.claim(position, len);
+			OneTimePadCrypto.this.apply(src, srcOff, dst, dstOff, len, position, decrypt);
+		}
+
+		@Override
+		public ChunkedCrypto claim(long position, long length){
+			if(position < this.from || length < 0 || position > this.to - length){
+				throw new RuntimeException("Illegal range of " + length + " elements at position " + position + ". It must be in the claimed range.");
+			}
+			return this;
+		}
+
+		@Override
+		public int[] decrypt(int[] y) {
+			int[] result = new int[y.length];
+			this.decrypt(y, 0, result, 0, y.length);
+			return result;
+		}
+
+		@Override
+		public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+			this.decrypt(src, srcOff, dst, dstOff, len, this.from);
+		}
+
+		@Override
+		public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+			this.transform(src, srcOff, dst, dstOff, len, position, true);
+		}
+
+		@Override
+		public int[] encrypt(int[] x) {
+			int[] result = new int[x.length];
+			this.encrypt(x, 0, result, 0, x.length);
+			return result;
+		}
+
+		@Override
+		public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+			this.encrypt(src, srcOff, dst, dstOff, len, this.from);
+		}
+
+		@Override
+		public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+			this.transform(src, srcOff, dst, dstOff, len, position, false);
+		}
+
+	}
+
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * The {@code PadSource} interface supplies the values of a One Time Pad, so that the
+ * pad does not have to be held in memory as an {@code int[]}. A pad may be an array,
+ * a memory-mapped file or a stream; in a file or stream every byte (0 to 255) is one
+ * value of the pad.
+ * @author Nathaniel
+ *
+ */
+
+public interface PadSource {
+
+	/**
+	 * Get the number of values of the pad
+	 * @return The length of the pad
+	 */
+	long length();
+
+	/**
+	 * Copy values of the pad into an array
+	 * @param offset The index of the first value in the pad
+	 * @param dst The array that receives the values
+	 * @param dstOff The index in {@code dst} of the first value
+	 * @param len The number of values
+	 */
+	void read(long offset, int[] dst, int dstOff, int len);
+
+	/**
+	 * Get a pad backed by an array. The array is not copied.
+	 * @param pad The values of the pad
+	 * @return A {@code PadSource} object
+	 */
+	static PadSource of(int[] pad){
+		return new ArrayPadSource(pad);
+	}
+
+	/**
+	 * Get a pad backed by a memory-mapped file; only the pages that are read are loaded
+	 * @param file The file of the pad
+	 * @return A {@code PadSource} object
+	 * @throws IOException If the file cannot be mapped
+	 */
+	static PadSource map(Path file) throws IOException {
+		return new MappedPadSource(file);
+	}
+
+	/**
+	 * Get a pad read from a stream. A stream can only go forward, so the pad must be
+	 * read at increasing offsets, e.g. by messages encrypted in the order in which
+	 * {@code OneTimePad} handed them out.
+	 * @param in The stream of the pad
+	 * @param length The number of bytes in the stream
+	 * @return A {@code PadSource} object
+	 */
+	static PadSource stream(InputStream in, long length){
+		return new StreamPadSource(in, length);
+	}
+
+}
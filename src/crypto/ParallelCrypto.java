@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A {@code Crypto} that splits large arrays into pieces and encrypts/decrypts them
+ * on a {@code ForkJoinPool}. Only ciphers that can safely work on a piece of a message
+ * are split: a {@code SymbolCrypto} does not depend on positions at all, and a
+ * {@code ChunkedCrypto} is told the position of each piece (e.g. so that Vigenere uses
+ * the right key offset). A {@code ChunkedCrypto} is claimed for the whole array
+ * before the pieces are forked, so that a One Time Pad is checked once rather than
+ * by whichever piece happens to run first. Any array no longer than the threshold is
+ * handed to the wrapped {@code Crypto} on the calling thread. Any other {@code Crypto}
+ * is not wrapped at all (see {@link #of(Crypto, int, ForkJoinPool)}), so that it
+ * keeps seeing whole messages.
+ * <p>
+ * A wrapped {@code SymbolCrypto} gives a {@link Symbol}, which is a
+ * {@code SymbolCrypto} itself. {@code Encoding} hands a {@code ParallelCrypto} the
+ * whole message at once, and the streams read and write at least
+ * {@link #getPieceSize()} elements at a time, so that their pieces are large enough
+ * to be split.
+ * @author Nathaniel
+ *
+ */
+
+class ParallelCrypto implements ChunkedCrypto {
+
+	// The largest piece size asked of the streams, however large the threshold
+	private static final int MAX_PIECE = 1 << 22;
+
+	private final Crypto crypto;
+	private final int threshold;
+	private final ForkJoinPool pool;
+
+	private ParallelCrypto(Crypto crypto, int threshold, ForkJoinPool pool) {
+		this.crypto = crypto;
+		this.threshold = threshold;
+		this.pool = pool;
+	}
+
+	/**
+	 * Get a {@code Crypto} that splits large arrays into pieces on a pool. A
+	 * {@code Crypto} that is neither a {@code SymbolCrypto} nor a {@code ChunkedCrypto}
+	 * may depend on positions in ways its pieces cannot be told about, so it is
+	 * returned as it is: wrapping it would make it look like a {@code ChunkedCrypto}
+	 * to {@code Encoding} and the streams, which would then hand it pieces that each
+	 * start again from position 0.
+	 * @param crypto The {@code Crypto} that does the actual work
+	 * @param threshold The largest number of elements processed by a single thread
+	 * @param pool The pool that runs the pieces
+	 * @return A {@code Crypto} object
+	 */
+	static Crypto of(Crypto crypto, int threshold, ForkJoinPool pool){
+		if(threshold <= 0){
+			throw new RuntimeException("Illegal threshold " + threshold + ". It must be positive.");
+		}
+		if(crypto instanceof SymbolCrypto){
+			return new Symbol((SymbolCrypto) crypto, threshold, pool);
+		}
+		if(!(crypto instanceof ChunkedCrypto)){
+			return crypto;
+		}
+		return new ParallelCrypto(crypto, threshold, pool);
+	}
+
+	/**
+	 * @return The number of elements worth handing to this {@code Crypto} at a time:
+	 * a piece of {@code threshold} elements for every thread of the pool
+	 */
+	int getPieceSize(){
+		return (int) Math.min(MAX_PIECE, Math.max(this.threshold, (long) this.threshold * this.pool.getParallelism()));
+	}
+
+	@Override
+	public int[] decrypt(int[] y) {
+		int[] result = new int[y.length];
+		this.decrypt(y, 0, result, 0, y.length);
+		return result;
+	}
+
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		this.decrypt(src, srcOff, dst, dstOff, len, 0);
+	}
+
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+		this.run(src, srcOff, dst, dstOff, len, position, true);
+	}
+
+	@Override
+	public ChunkedCrypto claim(long position, long length){
+		if(this.crypto instanceof ChunkedCrypto){
+			return new ParallelCrypto(((ChunkedCrypto) this.crypto).claim(position, length), this.threshold, this.pool);
+		}
+		return this;
+	}
+
+	@Override
+	public int[] encrypt(int[] x) {
+		int[] result = new int[x.length];
+		this.encrypt(x, 0, result, 0, x.length);
+		return result;
+	}
+
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		this.encrypt(src, srcOff, dst, dstOff, len, 0);
+	}
+
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+		this.run(src, srcOff, dst, dstOff, len, position, false);
+	}
+
+	private void run(int[] src, int srcOff, int[] dst, int dstOff, int len, long position, boolean decrypt){
+		if(len < 0 || srcOff < 0 || dstOff < 0 || src.length - srcOff < len || dst.length - dstOff < len){
+			throw new ArrayIndexOutOfBoundsException("Illegal range of " + len + " elements");
+		}
+		if(len > this.threshold){
+			Crypto crypto = this.crypto instanceof ChunkedCrypto ? ((ChunkedCrypto) this.crypto).claim(position, len) : this.crypto;
+			this.pool.invoke(new Piece(crypto, src, srcOff, dst, dstOff, len, position, decrypt));
+		}
+		else{
+			sequential(this.crypto, src, srcOff, dst, dstOff, len, position, decrypt);
+		}
+	}
+
+	private static void sequential(Crypto crypto, int[] src, int srcOff, int[] dst, int dstOff, int len, long position, boolean decrypt){
+		if(crypto instanceof ChunkedCrypto){
+			ChunkedCrypto c = (ChunkedCrypto) crypto;
+			if(decrypt){
+				c.decrypt(src, srcOff, dst, dstOff, len, position);
+			}
+			else{
+				c.encrypt(src, srcOff, dst, dstOff, len, position);
+			}
+		}
+		else if(decrypt){
+			crypto.decrypt(src, srcOff, dst, dstOff, len);
+		}
+		else{
+			crypto.encrypt(src, srcOff, dst, dstOff, len);
+		}
+	}
+
+	/**
+	 * A {@code ParallelCrypto} around a {@code SymbolCrypto}. It is a
+	 * {@code SymbolCrypto} itself, so that single symbols are still mapped on their
+	 * own, e.g. by {@code CryptoFactory.chain} and {@code FileCrypto}.
+	 */
+	static final class Symbol extends ParallelCrypto implements SymbolCrypto {
+
+		private final SymbolCrypto symbols;
+
+		private Symbol(SymbolCrypto crypto, int threshold, ForkJoinPool pool) {
+			super(crypto, threshold, pool);
+			this.symbols = crypto;
+		}
+
+		@Override
+		public int decrypt(int y) {
+			return this.symbols.decrypt(y);
+		}
+
+		@Override
+		public int encrypt(int x) {
+			return this.symbols.encrypt(x);
+		}
+
+	}
+
+	private final class Piece extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Crypto crypto;
+		private final int[] src;
+		private final int srcOff;
+		private final int[] dst;
+		private final int dstOff;
+		private final int len;
+		private final long position;
+		private final boolean decrypt;
+
+		Piece(Crypto crypto, int[] src, int srcOff, int[] dst, int dstOff, int len, long position, boolean decrypt) {
+			this.crypto = crypto;
+			this.src = src;
+			this.srcOff = srcOff;
+			this.dst = dst;
+			this.dstOff = dstOff;
+			this.len = len;
+			this.position = position;
+			this.decrypt = decrypt;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.len <= ParallelCrypto.this.threshold){
+				sequential(this.crypto, this.src, this.srcOff, this.dst, this.dstOff, this.len, this.position, this.decrypt);
+				return;
+			}
+			int half = this.len >>> 1;
+			invokeAll(new Piece(this.crypto, this.src, this.srcOff, this.dst, this.dstOff, half, this.position, this.decrypt),
+					new Piece(this.crypto, this.src, this.srcOff + half, this.dst, this.dstOff + half, this.len - half, this.position + half, this.decrypt));
+		}
+
+	}
+
+}
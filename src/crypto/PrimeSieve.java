@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Arrays;
+
+/**
+ * A sieve of Eratosthenes that grows on demand, one segment at a time. Only odd
+ * numbers are kept, one bit each, and the primes found so far are kept in a list,
+ * so trial division does not have to test composite divisors. Every request is
+ * served from an immutable {@code Table}, which is replaced when the sieve grows,
+ * so a single sieve can be shared by all threads.
+ * @author Nathaniel
+ *
+ */
+
+final class PrimeSieve {
+
+	// The numbers sieved at a time; a multiple of 128 so that a segment fills whole words
+	private static final int SEGMENT = 1 << 16;
+
+	// The sieve never grows beyond this limit
+	static final int MAX_LIMIT = 1 << 30;
+
+	/**
+	 * The sieve shared by the solvers
+	 */
+	static final PrimeSieve SHARED = new PrimeSieve();
+
+	/**
+	 * The primes below a limit. Bit (v >> 1) of {@code composite} is set for the odd
+	 * composites v below the limit.
+	 */
+	static final class Table {
+
+		final int limit;
+		final long[] composite;
+		final int[] primes;
+		final int count;
+
+		Table(int limit, long[] composite, int[] primes, int count) {
+			this.limit = limit;
+			this.composite = composite;
+			this.primes = primes;
+			this.count = count;
+		}
+
+		/**
+		 * Check if a number below the limit is prime
+		 */
+		boolean isPrime(int v){
+			if((v & 1) == 0){
+				return v == 2;
+			}
+			int bit = v >>> 1;
+			return v > 1 && (this.composite[bit >>> 6] & (1L << bit)) == 0;
+		}
+
+	}
+
+	private volatile Table table = new Table(0, new long[0], new int[0], 0);
+
+	/**
+	 * Get a table of the primes below at least {@code limit}, sieving further if needed
+	 * @param limit The limit, at most {@code MAX_LIMIT}
+	 * @return A table whose limit is at least {@code limit}
+	 */
+	Table table(int limit){
+		Table t = this.table;
+		return t.limit >= limit ? t : this.grow(limit);
+	}
+
+	private synchronized Table grow(int limit){
+		Table t = this.table;
+		if(t.limit >= limit){
+			return t;
+		}
+		if(limit > MAX_LIMIT){
+			throw new RuntimeException("Illegal limit " + limit + ". It must be at most " + MAX_LIMIT + ".");
+		}
+		// Grow at least twofold, so that a slowly increasing limit costs amortized constant copies
+		long target = Math.max((long) limit, 2L * t.limit);
+		int newLimit = (int) Math.min(MAX_LIMIT, (target + SEGMENT - 1) / SEGMENT * SEGMENT);
+		long[] composite = Arrays.copyOf(t.composite, newLimit >>> 7);
+		int[] primes = t.primes;
+		int count = t.count;
+		for(int lo = t.limit; lo < newLimit; lo += SEGMENT){
+			int hi = lo + SEGMENT;
+			sieve(composite, primes, count, lo, hi);
+			// the segment may be the first one, whose sieving primes are in the segment itself
+			for(int v = Math.max(lo | 1, 3); (long) v * v < hi; v += 2){
+				if(!isComposite(composite, v)){
+					mark(composite, v, lo, hi);
+				}
+			}
+			if(lo == 0){
+				primes = append(primes, count++, 2);
+			}
+			for(int v = lo | 1; v < hi; v += 2){
+				if(v > 1 && !isComposite(composite, v)){
+					primes = append(primes, count++, v);
+				}
+			}
+		}
+		t = new Table(newLimit, composite, primes, count);
+		this.table = t;
+		return t;
+	}
+
+	private static void sieve(long[] composite, int[] primes, int count, int lo, int hi){
+		// primes[0] is 2, whose multiples are never stored
+		for(int i = 1; i < count && (long) primes[i] * primes[i] < hi; ++i){
+			mark(composite, primes[i], lo, hi);
+		}
+	}
+
+	// Mark the odd multiples of the odd prime p in [max(lo, p * p), hi) as composite
+	private static void mark(long[] composite, int p, int lo, int hi){
+		long start = Math.max((long) p * p, ((long) lo + p - 1) / p * p);
+		if((start & 1) == 0){
+			start += p;
+		}
+		for(long m = start; m < hi; m += 2L * p){
+			int bit = (int) (m >>> 1);
+			composite[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	private static boolean isComposite(long[] composite, int v){
+		int bit = v >>> 1;
+		return (composite[bit >>> 6] & (1L << bit)) != 0;
+	}
+
+	private static int[] append(int[] primes, int count, int p){
+		if(count == primes.length){
+			primes = Arrays.copyOf(primes, Math.max(16, count * 2));
+		}
+		primes[count] = p;
+		return primes;
+	}
+
+}
@@ -4,34 +4,104 @@
 
 package crypto;
 
-class RSACrypto implements Crypto{
+class RSACrypto implements SymbolCrypto{
 	
-	private long n;
-	private long e;
-	private long d;
+	private static final int CACHE_SIZE = 1 << 10;
+
+	private final long n;
+	private final long e;
+	private final long d;
+	// Per-key exponentiation plans; null if n is even
+	private final ExponentPlan encryptPlan;
+	private final ExponentPlan decryptPlan;
+	// Lazily filled results for small symbols, stored as result + 1 so that 0 means
+	// "not computed yet"; null if the results may not fit in an int
+	private final int[] encryptCache;
+	private final int[] decryptCache;
 
 	protected RSACrypto(long p, long q, long e) {
 		this.n = p * q;
 		this.e = e;
 		this.d = DiscreteMath.modInv(e, (p-1) * (q-1));
+		if((this.n & 1) == 1 && this.n > 1){
+			Montgomery montgomery = new Montgomery(this.n);
+			this.encryptPlan = new ExponentPlan(montgomery, this.e);
+			this.decryptPlan = new ExponentPlan(montgomery, this.d);
+		}
+		else{
+			this.encryptPlan = null;
+			this.decryptPlan = null;
+		}
+		if(this.n > 0 && this.n <= Integer.MAX_VALUE){
+			this.encryptCache = new int[(int) Math.min(this.n, CACHE_SIZE)];
+			this.decryptCache = new int[(int) Math.min(this.n, CACHE_SIZE)];
+		}
+		else{
+			this.encryptCache = null;
+			this.decryptCache = null;
+		}
+	}
+
+	private long modExpo(long base, long expo, ExponentPlan plan){
+		if(plan != null){
+			return plan.pow(Math.floorMod(base, this.n));
+		}
+		return DiscreteMath.modExpo(Math.floorMod(base, this.n), expo, this.n);
+	}
+
+	/**
+	 * Most messages are drawn from a small alphabet, so the result for each small
+	 * symbol is computed once and then looked up. Concurrent callers may compute the
+	 * same entry twice, but always store the same value.
+	 */
+	private int transform(int x, long expo, ExponentPlan plan, int[] cache){
+		if(cache != null && x >= 0 && x < cache.length){
+			int cached = cache[x];
+			if(cached == 0){
+				cached = (int) this.modExpo(x, expo, plan) + 1;
+				cache[x] = cached;
+			}
+			return cached - 1;
+		}
+		return (int) this.modExpo(x, expo, plan);
 	}
 
 	@Override
 	public int[] decrypt(int[] y) {
 		int[] result = new int[y.length];
-		for(int i = 0; i < y.length; ++i){
-			result[i] = (int) DiscreteMath.modExpoRecursive(y[i], this.d, this.n);
-		}
+		this.decrypt(y, 0, result, 0, y.length);
 		return result;
 	}
 
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		for(int i = 0; i < len; ++i){
+			dst[dstOff + i] = this.decrypt(src[srcOff + i]);
+		}
+	}
+
+	@Override
+	public int decrypt(int y) {
+		return this.transform(y, this.d, this.decryptPlan, this.decryptCache);
+	}
+
 	@Override
 	public int[] encrypt(int[] x) {
 		int[] result = new int[x.length];
-		for(int i = 0; i < x.length; ++i){
-			result[i] = (int) DiscreteMath.modExpoRecursive(x[i], this.e, this.n);
-		}
+		this.encrypt(x, 0, result, 0, x.length);
 		return result;
 	}
 
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		for(int i = 0; i < len; ++i){
+			dst[dstOff + i] = this.encrypt(src[srcOff + i]);
+		}
+	}
+
+	@Override
+	public int encrypt(int x) {
+		return this.transform(x, this.e, this.encryptPlan, this.encryptCache);
+	}
+
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates RSA keys {p, q, e} for {@code CryptoFactory.rsa(long, long, long)}. The
+ * primes are found by picking a random odd integer and testing the ones after it: a
+ * window of candidates is first sieved by the small primes of the shared
+ * {@code PrimeSieve}, and only the candidates left are tested by
+ * {@code DiscreteMath.isPrime}. Each prime has its two highest bits set, so that
+ * the modulus p * q has exactly the requested number of bits. The public key e is
+ * 65537 if it is coprime to (p - 1) * (q - 1), or else the smallest odd integer
+ * that is.
+ * <p>
+ * A single key is found in microseconds, so many keys are generated in parallel
+ * on the common {@code ForkJoinPool}, each from its own random generator split from
+ * this one. A generator created with a seed always gives the same keys.
+ * @author Nathaniel
+ *
+ */
+
+public final class RSAKeyGenerator {
+
+	/**
+	 * The smallest number of bits of a modulus
+	 */
+	public static final int MIN_BITS = 16;
+
+	/**
+	 * The largest number of bits of a modulus
+	 */
+	public static final int MAX_BITS = 62;
+
+	/**
+	 * The public key used if it is coprime to (p - 1) * (q - 1)
+	 */
+	public static final long DEFAULT_EXPONENT = 65537;
+
+	// Candidates are sieved by the primes below this bound
+	private static final int SIEVE_LIMIT = 1 << 12;
+
+	// The number of odd candidates sieved at a time
+	private static final int WINDOW = 1 << 9;
+
+	private static final int KEYS_PER_TASK = 16;
+
+	private final int bits;
+	private final SplittableRandom random;
+
+	/**
+	 * Create a generator of keys whose modulus has the given number of bits
+	 * @param bits The number of bits of n = p * q, in [MIN_BITS, MAX_BITS]
+	 */
+	public RSAKeyGenerator(int bits) {
+		this(bits, new SplittableRandom());
+	}
+
+	/**
+	 * Create a generator that gives the same keys every time for the same seed
+	 * @param bits The number of bits of n = p * q, in [MIN_BITS, MAX_BITS]
+	 * @param seed The seed of the random generator
+	 */
+	public RSAKeyGenerator(int bits, long seed) {
+		this(bits, new SplittableRandom(seed));
+	}
+
+	private RSAKeyGenerator(int bits, SplittableRandom random) {
+		if(bits < MIN_BITS || bits > MAX_BITS){
+			throw new RuntimeException("Illegal bits " + bits + ". It must be in [" + MIN_BITS + ", " + MAX_BITS + "].");
+		}
+		this.bits = bits;
+		this.random = random;
+	}
+
+	private synchronized SplittableRandom split(){
+		return this.random.split();
+	}
+
+	/**
+	 * Generate a key
+	 * @return {p, q, e}, with p and q different primes
+	 */
+	public long[] nextKey(){
+		return this.key(this.split());
+	}
+
+	/**
+	 * Generate many keys in parallel
+	 * @param count The number of keys
+	 * @return {@code count} keys {p, q, e}
+	 */
+	public long[][] nextKeys(int count){
+		if(count < 0){
+			throw new RuntimeException("Illegal count " + count + ". It must be non-negative.");
+		}
+		SplittableRandom[] randoms = new SplittableRandom[count];
+		for(int i = 0; i < count; ++i){
+			randoms[i] = this.split();
+		}
+		long[][] keys = new long[count][];
+		ForkJoinPool.commonPool().invoke(new Task(randoms, keys, 0, count));
+		return keys;
+	}
+
+	/**
+	 * Generate a key and get the RSA cipher for it. The encrypted integers are below
+	 * the modulus, so they only fit in the {@code int}s of a {@code Crypto} if the
+	 * modulus has at most 31 bits.
+	 * @return A {@code Crypto} object
+	 */
+	public Crypto next(){
+		if(this.bits > 31){
+			throw new RuntimeException("Illegal bits " + this.bits + ". It must be at most 31 for a Crypto.");
+		}
+		long[] key = this.nextKey();
+		return CryptoFactory.rsa(key[0], key[1], key[2]);
+	}
+
+	private long[] key(SplittableRandom random){
+		int pBits = (this.bits + 1) / 2;
+		long p = prime(pBits, random);
+		long q;
+		do{
+			q = prime(this.bits - pBits, random);
+		}
+		while(q == p);
+		long phi = (p - 1) * (q - 1);
+		return new long[] {p, q, exponent(phi)};
+	}
+
+	private static long exponent(long phi){
+		if(DEFAULT_EXPONENT < phi && DiscreteMath.gcd(DEFAULT_EXPONENT, phi) == 1){
+			return DEFAULT_EXPONENT;
+		}
+		long e = 3;
+		while(DiscreteMath.gcd(e, phi) != 1){
+			e += 2;
+		}
+		return e;
+	}
+
+	/**
+	 * A random prime in [3 * 2^(bits - 2), 2^bits)
+	 */
+	private static long prime(int bits, SplittableRandom random){
+		long lo = 3L << (bits - 2);
+		long hi = 1L << bits;
+		long start = (lo + random.nextLong(hi - lo)) | 1;
+		PrimeSieve.Table table = PrimeSieve.SHARED.table(SIEVE_LIMIT);
+		// composite[i] is set if start + 2 * i has a small prime factor
+		boolean[] composite = new boolean[WINDOW];
+		while(true){
+			Arrays.fill(composite, false);
+			long end = start + 2L * WINDOW;
+			for(int k = 1; k < table.count; ++k){
+				long p = table.primes[k];
+				if(p * p >= end){
+					break;
+				}
+				// the first odd multiple of p in the window, other than p itself
+				long m = Math.max(p * p, (start + p - 1) / p * p);
+				if((m & 1) == 0){
+					m += p;
+				}
+				for(long i = (m - start) >>> 1; i < WINDOW; i += p){
+					composite[(int) i] = true;
+				}
+			}
+			for(int i = 0; i < WINDOW; ++i){
+				long v = start + 2L * i;
+				if(v >= hi){
+					break;
+				}
+				if(!composite[i] && DiscreteMath.isPrime(v)){
+					return v;
+				}
+			}
+			start = end < hi ? end : lo | 1;
+		}
+	}
+
+	private final class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final SplittableRandom[] randoms;
+		private final long[][] keys;
+		private final int from;
+		private final int to;
+
+		Task(SplittableRandom[] randoms, long[][] keys, int from, int to) {
+			this.randoms = randoms;
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.to - this.from <= KEYS_PER_TASK){
+				for(int i = this.from; i < this.to; ++i){
+					this.keys[i] = RSAKeyGenerator.this.key(this.randoms[i]);
+				}
+				return;
+			}
+			int mid = (this.from + this.to) >>> 1;
+			invokeAll(new Task(this.randoms, this.keys, this.from, mid),
+					new Task(this.randoms, this.keys, mid, this.to));
+		}
+
+	}
+
+}
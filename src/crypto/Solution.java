@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Arrays;
+
+/**
+ * A candidate key found by {@code CryptoSolver}, together with the {@code Crypto}
+ * it defines and how much the decrypted text looks like English. Scores are the
+ * average log-probability per symbol, so a higher (closer to zero) score is better.
+ * @author Nathaniel
+ *
+ */
+
+public final class Solution {
+
+	private final Crypto crypto;
+	private final int[] key;
+	private final double score;
+
+	Solution(Crypto crypto, int[] key, double score) {
+		this.crypto = crypto;
+		this.key = key;
+		this.score = score;
+	}
+
+	/**
+	 * Get the {@code Crypto} defined by the key, which decrypts the cipher text
+	 * @return The {@code Crypto} object
+	 */
+	public Crypto getCrypto(){
+		return this.crypto;
+	}
+
+	/**
+	 * Get the key, e.g. {key} for Caesar Cipher and {a, b} for Affine Cipher
+	 * @return A copy of the key
+	 */
+	public int[] getKey(){
+		return this.key.clone();
+	}
+
+	/**
+	 * Get the score of the key
+	 * @return The average log-probability per symbol of the decrypted text
+	 */
+	public double getScore(){
+		return this.score;
+	}
+
+	@Override
+	public String toString(){
+		return "key=" + Arrays.toString(this.key) + " score=" + this.score;
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A One Time Pad read from a stream, one value per byte. The stream is read only as
+ * far as needed; values skipped over by a later offset are discarded, and offsets
+ * before the current one can no longer be read.
+ * @author Nathaniel
+ *
+ */
+
+class StreamPadSource implements PadSource {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final InputStream in;
+	private final long length;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	// The offset in the pad of the next byte of the stream
+	private long position;
+
+	StreamPadSource(InputStream in, long length) {
+		if(length < 0){
+			throw new RuntimeException("Illegal length " + length + ". It must be non-negative.");
+		}
+		this.in = in;
+		this.length = length;
+	}
+
+	@Override
+	public long length() {
+		return this.length;
+	}
+
+	@Override
+	public synchronized void read(long offset, int[] dst, int dstOff, int len) {
+		if(offset < this.position){
+			throw new RuntimeException("The pad before offset " + this.position + " has already been read");
+		}
+		if(offset + len > this.length){
+			throw new RuntimeException("This one time pad is not long enough");
+		}
+		try{
+			while(this.position < offset){
+				int n = this.in.read(this.buffer, 0, (int) Math.min(this.buffer.length, offset - this.position));
+				if(n < 0){
+					throw new EOFException("The pad ended at offset " + this.position);
+				}
+				this.position += n;
+			}
+			while(len > 0){
+				int n = this.in.read(this.buffer, 0, Math.min(this.buffer.length, len));
+				if(n < 0){
+					throw new EOFException("The pad ended at offset " + this.position);
+				}
+				for(int i = 0; i < n; ++i){
+					dst[dstOff + i] = this.buffer[i] & 0xFF;
+				}
+				this.position += n;
+				dstOff += n;
+				len -= n;
+			}
+		}
+		catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
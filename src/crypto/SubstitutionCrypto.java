@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * A table-driven version of a cipher that maps every element on its own, regardless
+ * of its position (e.g. Caesar, Affine). The result of the original cipher for every
+ * value in [0, divisor) is computed once in the constructor, so encryption/decryption
+ * costs one array lookup per element. Values outside that range are rare and are
+ * still handed to the original cipher.
+ * @author Nathaniel
+ *
+ */
+
+class SubstitutionCrypto implements SymbolCrypto {
+
+	private final SymbolCrypto base;
+	private final int[] encryptTable;
+	private final int[] decryptTable;
+
+	protected SubstitutionCrypto(SymbolCrypto base, int divisor) {
+		this.base = base;
+		int[] identity = new int[divisor];
+		for(int i = 0; i < divisor; ++i){
+			identity[i] = i;
+		}
+		this.encryptTable = base.encrypt(identity);
+		this.decryptTable = base.decrypt(identity);
+	}
+
+	SymbolCrypto getBase(){
+		return this.base;
+	}
+
+	@Override
+	public int[] decrypt(int[] y) {
+		int[] result = new int[y.length];
+		this.decrypt(y, 0, result, 0, y.length);
+		return result;
+	}
+
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		int[] table = this.decryptTable;
+		for(int i = 0; i < len; ++i){
+			int y = src[srcOff + i];
+			dst[dstOff + i] = (y >= 0 && y < table.length) ? table[y] : this.base.decrypt(y);
+		}
+	}
+
+	@Override
+	public int decrypt(int y) {
+		return (y >= 0 && y < this.decryptTable.length) ? this.decryptTable[y] : this.base.decrypt(y);
+	}
+
+	@Override
+	public int[] encrypt(int[] x) {
+		int[] result = new int[x.length];
+		this.encrypt(x, 0, result, 0, x.length);
+		return result;
+	}
+
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		int[] table = this.encryptTable;
+		for(int i = 0; i < len; ++i){
+			int x = src[srcOff + i];
+			dst[dstOff + i] = (x >= 0 && x < table.length) ? table[x] : this.base.encrypt(x);
+		}
+	}
+
+	@Override
+	public int encrypt(int x) {
+		return (x >= 0 && x < this.encryptTable.length) ? this.encryptTable[x] : this.base.encrypt(x);
+	}
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * A {@code Crypto} that maps every element on its own, regardless of its position in
+ * the message. Implementing this lets {@code Encoding} encrypt/decrypt a
+ * {@code String} symbol by symbol, without building any intermediate {@code int[]}.
+ * @author Nathaniel
+ *
+ */
+
+public interface SymbolCrypto extends Crypto {
+
+	/**
+	 * Decrypt a single element
+	 * @param y The element to decrypt
+	 * @return The original element
+	 */
+	public int decrypt(int y);
+
+	/**
+	 * Encrypt a single element
+	 * @param x The element to encrypt
+	 * @return The encrypted element
+	 */
+	public int encrypt(int x);
+
+}
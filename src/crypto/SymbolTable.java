@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import java.util.Arrays;
+
+/**
+ * A read-only map from {@code int} to {@code int} without boxing, used by
+ * {@code Encoding} for the char to int and int to char lookups. Small non-negative
+ * keys (e.g. the characters and integers of {@code Encoding.DEFAULT} and
+ * {@code Encoding.ASCII}) are looked up directly in an array; anything else falls
+ * back to an open-addressing hash table.
+ * @author Nathaniel
+ *
+ */
+
+abstract class SymbolTable {
+
+	/**
+	 * Returned by {@link #get(int)} for a key that is not in the table. A key that is
+	 * mapped to this value has to be told apart with {@link #contains(int)}.
+	 */
+	static final int MISSING = Integer.MIN_VALUE;
+
+	private static final int DENSE_MIN_LENGTH = 256;
+	private static final int DENSE_LOAD = 8;
+
+	/**
+	 * Get the value of a key
+	 * @param key The key
+	 * @return The value, or {@code MISSING} if there is no such key
+	 */
+	abstract int get(int key);
+
+	/**
+	 * Check if a key is in the table
+	 * @param key The key
+	 * @return True if the key is in the table; false if not
+	 */
+	abstract boolean contains(int key);
+
+	/**
+	 * Build a table. The keys must be distinct.
+	 * @param keys The keys
+	 * @param values The values, {@code values[i]} being the value of {@code keys[i]}
+	 * @return The table
+	 */
+	static SymbolTable of(int[] keys, int[] values){
+		int min = 0;
+		int max = -1;
+		boolean hasMissing = false;
+		for(int i = 0; i < keys.length; ++i){
+			min = Math.min(min, keys[i]);
+			max = Math.max(max, keys[i]);
+			hasMissing |= values[i] == MISSING;
+		}
+		if(min >= 0 && !hasMissing && max < Math.max(DENSE_MIN_LENGTH, DENSE_LOAD * keys.length)){
+			return new Dense(keys, values, max + 1);
+		}
+		return new Hashed(keys, values);
+	}
+
+	private static final class Dense extends SymbolTable {
+
+		private final int[] table;
+
+		Dense(int[] keys, int[] values, int length) {
+			this.table = new int[length];
+			Arrays.fill(this.table, MISSING);
+			for(int i = 0; i < keys.length; ++i){
+				this.table[keys[i]] = values[i];
+			}
+		}
+
+		@Override
+		int get(int key) {
+			return key >= 0 && key < this.table.length ? this.table[key] : MISSING;
+		}
+
+		@Override
+		boolean contains(int key) {
+			return this.get(key) != MISSING;
+		}
+
+	}
+
+	private static final class Hashed extends SymbolTable {
+
+		// MISSING doubles as the marker of an empty slot, so that key is kept aside
+		private final int[] keys;
+		private final int[] values;
+		private final int mask;
+		private final boolean hasMissingKey;
+		private final int missingKeyValue;
+
+		Hashed(int[] keys, int[] values) {
+			int capacity = Integer.highestOneBit(Math.max(keys.length, 2) * 2 - 1) << 1;
+			this.keys = new int[capacity];
+			this.values = new int[capacity];
+			this.mask = capacity - 1;
+			Arrays.fill(this.keys, MISSING);
+			boolean hasMissingKey = false;
+			int missingKeyValue = MISSING;
+			for(int i = 0; i < keys.length; ++i){
+				if(keys[i] == MISSING){
+					hasMissingKey = true;
+					missingKeyValue = values[i];
+					continue;
+				}
+				int slot = hash(keys[i]) & this.mask;
+				while(this.keys[slot] != MISSING){
+					slot = (slot + 1) & this.mask;
+				}
+				this.keys[slot] = keys[i];
+				this.values[slot] = values[i];
+			}
+			this.hasMissingKey = hasMissingKey;
+			this.missingKeyValue = missingKeyValue;
+		}
+
+		private static int hash(int key){
+			int h = key * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+
+		@Override
+		int get(int key) {
+			if(key == MISSING){
+				return this.missingKeyValue;
+			}
+			for(int slot = hash(key) & this.mask; ; slot = (slot + 1) & this.mask){
+				int k = this.keys[slot];
+				if(k == key){
+					return this.values[slot];
+				}
+				if(k == MISSING){
+					return MISSING;
+				}
+			}
+		}
+
+		@Override
+		boolean contains(int key) {
+			if(key == MISSING){
+				return this.hasMissingKey;
+			}
+			for(int slot = hash(key) & this.mask; ; slot = (slot + 1) & this.mask){
+				int k = this.keys[slot];
+				if(k == key){
+					return true;
+				}
+				if(k == MISSING){
+					return false;
+				}
+			}
+		}
+
+	}
+
+}
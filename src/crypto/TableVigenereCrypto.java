@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+/**
+ * A table-driven Vigenere cipher. It keeps one row of [0, divisor) per key position,
+ * so encryption/decryption costs one array lookup per element. It gives exactly the
+ * same results as {@code VigenereCrypto}.
+ * @author Nathaniel
+ *
+ */
+
+class TableVigenereCrypto implements ChunkedCrypto {
+
+	private final int[] key;
+	private final int keyLength;
+	private final int divisor;
+	private final int[] encryptRows;
+	private final int[] decryptRows;
+
+	protected TableVigenereCrypto(int[] key, int divisor) {
+		this.key = key.clone();
+		this.keyLength = key.length;
+		this.divisor = divisor;
+		this.encryptRows = new int[key.length * divisor];
+		this.decryptRows = new int[key.length * divisor];
+		for(int k = 0; k < key.length; ++k){
+			for(int v = 0; v < divisor; ++v){
+				this.encryptRows[k * divisor + v] = DiscreteMath.mod(v + key[k], divisor);
+				this.decryptRows[k * divisor + v] = DiscreteMath.mod(v - key[k], divisor);
+			}
+		}
+	}
+
+	int[] getKey(){
+		return this.key;
+	}
+
+	int getDivisor(){
+		return this.divisor;
+	}
+
+	@Override
+	public int[] decrypt(int[] y) {
+		int[] result = new int[y.length];
+		this.decrypt(y, 0, result, 0, y.length);
+		return result;
+	}
+
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		this.decrypt(src, srcOff, dst, dstOff, len, 0);
+	}
+
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+		this.transform(this.decryptRows, src, srcOff, dst, dstOff, len, position);
+	}
+
+	@Override
+	public int[] encrypt(int[] x) {
+		int[] result = new int[x.length];
+		this.encrypt(x, 0, result, 0, x.length);
+		return result;
+	}
+
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		this.encrypt(src, srcOff, dst, dstOff, len, 0);
+	}
+
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+		this.transform(this.encryptRows, src, srcOff, dst, dstOff, len, position);
+	}
+
+	private void transform(int[] rows, int[] src, int srcOff, int[] dst, int dstOff, int len, long position){
+		int n = this.divisor;
+		int end = this.keyLength * n;
+		int row = (int) DiscreteMath.mod(position, this.keyLength) * n;
+		for(int i = 0; i < len; ++i){
+			int v = src[srcOff + i];
+			dst[dstOff + i] = (v >= 0 && v < n) ? rows[row + v] : v;
+			row += n;
+			if(row == end){
+				row = 0;
+			}
+		}
+	}
+
+}
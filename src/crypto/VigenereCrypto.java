@@ -6,42 +6,105 @@ package crypto;
 
 import java.util.Arrays;
 
-class VigenereCrypto implements Crypto {
+class VigenereCrypto implements ChunkedCrypto {
 	
-	private int[] key;
-	private int divisor;
+	private final int[] key;
+	private final int divisor;
+	// The key as the shifts of CipherKernels, extended for vector loads
+	private final int[] encryptShifts;
+	private final int[] decryptShifts;
 
 	public VigenereCrypto(int[] key, int divisor) {
 		this.key = Arrays.copyOf(key, key.length);
 		this.divisor = divisor;
+		if(divisor > 0 && key.length > 0){
+			int[] encrypt = new int[key.length];
+			int[] decrypt = new int[key.length];
+			for(int j = 0; j < key.length; ++j){
+				decrypt[j] = DiscreteMath.mod(key[j], divisor);
+				encrypt[j] = divisor - decrypt[j];
+			}
+			this.encryptShifts = CipherKernels.extend(encrypt);
+			this.decryptShifts = CipherKernels.extend(decrypt);
+		}
+		else{
+			this.encryptShifts = null;
+			this.decryptShifts = null;
+		}
+	}
+
+	int[] getKey(){
+		return this.key;
+	}
+
+	int getDivisor(){
+		return this.divisor;
 	}
 
 	@Override
 	public int[] decrypt(int[] y) {
 		int[] result = new int[y.length];
-		for(int i = 0, j = 0; i < result.length; ++i, ++j){
-			if(y[i] >= 0 && y[i] <= this.divisor - 1){
-				result[i] = (int) DiscreteMath.mod(y[i] - this.key[(int) DiscreteMath.mod(j, this.key.length)], this.divisor);
+		this.decrypt(y, 0, result, 0, y.length);
+		return result;
+	}
+
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		this.decrypt(src, srcOff, dst, dstOff, len, 0);
+	}
+
+	@Override
+	public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+		int j = (int) DiscreteMath.mod(position, this.key.length);
+		if(this.decryptShifts != null){
+			CipherKernels.BEST.shifts(src, srcOff, dst, dstOff, len, this.decryptShifts, this.key.length, j, this.divisor);
+			return;
+		}
+		for(int i = 0; i < len; ++i, ++j){
+			if(j == this.key.length){
+				j = 0;
+			}
+			int y = src[srcOff + i];
+			if(y >= 0 && y <= this.divisor - 1){
+				dst[dstOff + i] = DiscreteMath.mod(y - this.key[j], this.divisor);
 			}
 			else{
-				result[i] = y[i];
+				dst[dstOff + i] = y;
 			}
 		}
-		return result;
 	}
 
 	@Override
 	public int[] encrypt(int[] x) {
 		int[] result = new int[x.length];
-		for(int i = 0, j = 0; i < result.length; ++i, ++j){
-			if(x[i] >= 0 && x[i] <= this.divisor - 1){
-				result[i] = (int) DiscreteMath.mod(x[i] + this.key[(int) DiscreteMath.mod(j, this.key.length)], this.divisor);
+		this.encrypt(x, 0, result, 0, x.length);
+		return result;
+	}
+
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len) {
+		this.encrypt(src, srcOff, dst, dstOff, len, 0);
+	}
+
+	@Override
+	public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+		int j = (int) DiscreteMath.mod(position, this.key.length);
+		if(this.encryptShifts != null){
+			CipherKernels.BEST.shifts(src, srcOff, dst, dstOff, len, this.encryptShifts, this.key.length, j, this.divisor);
+			return;
+		}
+		for(int i = 0; i < len; ++i, ++j){
+			if(j == this.key.length){
+				j = 0;
+			}
+			int x = src[srcOff + i];
+			if(x >= 0 && x <= this.divisor - 1){
+				dst[dstOff + i] = DiscreteMath.mod(x + this.key[j], this.divisor);
 			}
 			else{
-				result[i] = x[i];
+				dst[dstOff + i] = x;
 			}
 		}
-		return result;
 	}
 
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package demo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import crypto.BatchProcessor;
+import crypto.Crypto;
+import crypto.CryptoFactory;
+import crypto.Encoding;
+
+/**
+ * Command line entry point for {@code BatchProcessor}: encrypts/decrypts a file of
+ * newline-delimited records, e.g.
+ * <pre>
+ * java -cp bin demo.CryptoBatch --cipher vigenere --key 10,4,24 --in plain.txt --out cipher.txt
+ * </pre>
+ * Flags:
+ * <ul>
+ *   <li>{@code --cipher caesar|affine|vigenere|rsa} (required)</li>
+ *   <li>{@code --key} comma-separated integers: the key for Caesar, "a,b" for Affine,
+ *   the key for Vigenere and "p,q,e" for RSA (required)</li>
+ *   <li>{@code --encoding default|ascii} (default: default)</li>
+ *   <li>{@code --divisor} the "n" in "x mod n" (default: 26 for the default encoding, 128 for ASCII)</li>
+ *   <li>{@code --decrypt} decrypt instead of encrypt</li>
+ *   <li>{@code --threads}, {@code --window}, {@code --batch} the settings of the {@code BatchProcessor}</li>
+ *   <li>{@code --in}, {@code --out} the input and output files (default: standard input and output)</li>
+ * </ul>
+ * The number of records and the throughput are reported on standard error.
+ * @author Nathaniel
+ *
+ */
+
+public class CryptoBatch {
+
+	private static Map<String, String> parse(String[] args){
+		Map<String, String> flags = new HashMap<String, String>();
+		for(int i = 0; i < args.length; ++i){
+			if(!args[i].startsWith("--")){
+				throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+			}
+			String name = args[i].substring(2);
+			if(name.equals("decrypt")){
+				flags.put(name, "true");
+			}
+			else if(i + 1 < args.length){
+				flags.put(name, args[++i]);
+			}
+			else{
+				throw new IllegalArgumentException("Missing value for --" + name);
+			}
+		}
+		return flags;
+	}
+
+	private static String required(Map<String, String> flags, String name){
+		String value = flags.get(name);
+		if(value == null){
+			throw new IllegalArgumentException("Missing --" + name);
+		}
+		return value;
+	}
+
+	private static int[] ints(String s){
+		String[] parts = s.split(",");
+		int[] values = new int[parts.length];
+		for(int i = 0; i < parts.length; ++i){
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+
+	private static Crypto crypto(String cipher, int[] key, int divisor){
+		if(cipher.equals("caesar") && key.length == 1){
+			return CryptoFactory.caesar(key[0], divisor);
+		}
+		if(cipher.equals("affine") && key.length == 2){
+			return CryptoFactory.affine(key[0], key[1], divisor);
+		}
+		if(cipher.equals("vigenere") && key.length > 0){
+			return CryptoFactory.vigenere(key, divisor);
+		}
+		if(cipher.equals("rsa") && key.length == 3){
+			return CryptoFactory.rsa(key[0], key[1], key[2]);
+		}
+		throw new IllegalArgumentException("Unknown cipher \"" + cipher + "\" or wrong number of key values");
+	}
+
+	public static void main(String[] args) throws IOException {
+		Map<String, String> flags = parse(args);
+		boolean ascii = flags.containsKey("encoding") && flags.get("encoding").equals("ascii");
+		if(flags.containsKey("encoding") && !ascii && !flags.get("encoding").equals("default")){
+			throw new IllegalArgumentException("Unknown encoding \"" + flags.get("encoding") + "\"");
+		}
+		Encoding encoding = ascii ? Encoding.ASCII : Encoding.DEFAULT;
+		int divisor = flags.containsKey("divisor") ? Integer.parseInt(flags.get("divisor")) : (ascii ? 128 : 26);
+		Crypto crypto = crypto(required(flags, "cipher"), ints(required(flags, "key")), divisor);
+		int processors = Runtime.getRuntime().availableProcessors();
+		int threads = flags.containsKey("threads") ? Integer.parseInt(flags.get("threads")) : processors;
+		int window = flags.containsKey("window") ? Integer.parseInt(flags.get("window")) : 4 * threads;
+		int batch = flags.containsKey("batch") ? Integer.parseInt(flags.get("batch")) : BatchProcessor.DEFAULT_BATCH_SIZE;
+		BatchProcessor processor = new BatchProcessor(encoding, crypto, flags.containsKey("decrypt"), threads, window, batch);
+
+		InputStream is = flags.containsKey("in") ? new FileInputStream(flags.get("in")) : System.in;
+		OutputStream os = flags.containsKey("out") ? new FileOutputStream(flags.get("out")) : System.out;
+		BufferedReader in = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 1 << 16);
+		Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16);
+		long start = System.nanoTime();
+		long records;
+		try{
+			records = processor.process(in, out);
+		}
+		finally{
+			in.close();
+			out.close();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf("%d records in %.3f s (%.0f records/s)%n", records, seconds, records / seconds);
+	}
+
+	private CryptoBatch(){
+
+	}
+}
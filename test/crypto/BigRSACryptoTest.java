@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * Tests {@code BigRSACrypto}: decryption by the Chinese Remainder Theorem against a
+ * plain {@code modPow} with d, and the round trip of {@code byte[]} messages.
+ * @author Nathaniel
+ *
+ */
+
+public class BigRSACryptoTest {
+
+	private static final BigInteger E = BigInteger.valueOf(65537);
+
+	private final Random random = new Random(42);
+
+	private BigInteger prime(int bits){
+		BigInteger p;
+		do{
+			p = BigInteger.probablePrime(bits, this.random);
+		}while(!p.subtract(BigInteger.ONE).gcd(E).equals(BigInteger.ONE));
+		return p;
+	}
+
+	@Test
+	public void decryptMatchesModPow() {
+		BigInteger p = this.prime(512);
+		BigInteger q = this.prime(512);
+		BigInteger n = p.multiply(q);
+		BigInteger d = E.modInverse(p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE)));
+		BlockCrypto rsa = CryptoFactory.rsa(p, q, E);
+		BigInteger[] blocks = {
+			BigInteger.ZERO, BigInteger.ONE, p, q, n.subtract(BigInteger.ONE), new BigInteger(1000, this.random)
+		};
+		for(BigInteger x : blocks){
+			BigInteger y = rsa.encrypt(x);
+			assertEquals(x.modPow(E, n), y);
+			assertEquals(y.modPow(d, n), rsa.decrypt(y));
+			assertEquals(x, rsa.decrypt(y));
+		}
+	}
+
+	@Test
+	public void bytesRoundTrip() {
+		BigRSACrypto rsa = (BigRSACrypto) CryptoFactory.rsa(this.prime(256), this.prime(256), E);
+		int block = rsa.getPlainBlockSize();
+		for(int length : new int[]{0, 1, block - 1, block, block + 1, 5 * block + 3}){
+			byte[] message = new byte[length];
+			this.random.nextBytes(message);
+			if(length > 1){
+				// leading zero bytes must survive
+				message[0] = 0;
+				message[1] = 0;
+			}
+			byte[] cipher = rsa.encrypt(message);
+			assertEquals(0, cipher.length % rsa.getCipherBlockSize());
+			assertArrayEquals(message, rsa.decrypt(cipher));
+		}
+	}
+
+	@Test
+	public void rejectsBlocksOutOfRange() {
+		BigInteger p = this.prime(64);
+		BigInteger q = this.prime(64);
+		final BlockCrypto rsa = CryptoFactory.rsa(p, q, E);
+		final BigInteger n = p.multiply(q);
+		assertThrows(RuntimeException.class, new Executable() {
+			@Override
+			public void execute() {
+				rsa.encrypt(n);
+			}
+		});
+		assertThrows(RuntimeException.class, new Executable() {
+			@Override
+			public void execute() {
+				rsa.decrypt(BigInteger.ONE.negate());
+			}
+		});
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that {@code CryptoFactory.chain} gives the same result as applying its stages
+ * one after another, whether or not the stages are folded, for integers in [0, n) and
+ * for integers outside it (negative, n and above, and the {@code int} extremes).
+ * @author Nathaniel
+ *
+ */
+
+public class ChainCryptoTest {
+
+	private static final int[] DIVISORS = {26, 4999, 65537};
+
+	private final Random random = new Random(42);
+
+	private int[] message(int n){
+		int[] message = new int[3000];
+		for(int i = 0; i < message.length; ++i){
+			message[i] = i % 5 == 0 ? this.random.nextInt(4 * n) - 2 * n : this.random.nextInt(n);
+		}
+		message[0] = Integer.MAX_VALUE;
+		message[1] = Integer.MIN_VALUE;
+		message[2] = -1;
+		message[3] = n;
+		return message;
+	}
+
+	/**
+	 * @param symbols {@code True} if every stage maps each symbol on its own, so that
+	 * single symbols can be checked
+	 */
+	private void check(int n, boolean symbols, Crypto... stages){
+		Crypto chain = CryptoFactory.chain(stages);
+		int[] message = this.message(n);
+		int[] encrypted = message.clone();
+		for(Crypto stage : stages){
+			encrypted = stage.encrypt(encrypted);
+		}
+		int[] decrypted = message.clone();
+		for(int i = stages.length - 1; i >= 0; --i){
+			decrypted = stages[i].decrypt(decrypted);
+		}
+		assertArrayEquals(encrypted, chain.encrypt(message));
+		assertArrayEquals(decrypted, chain.decrypt(message));
+		if(symbols){
+			for(int i = 0; i < 64; ++i){
+				assertEquals(encrypted[i], chain.encrypt(new int[]{message[i]})[0], "encrypt " + message[i]);
+				assertEquals(decrypted[i], chain.decrypt(new int[]{message[i]})[0], "decrypt " + message[i]);
+			}
+		}
+	}
+
+	@Test
+	public void affineAndCaesar() {
+		for(int n : DIVISORS){
+			Crypto affine = CryptoFactory.affine(3, 5, n);
+			Crypto other = CryptoFactory.affine(7, 1, n);
+			Crypto caesar = CryptoFactory.caesar(7, n);
+			this.check(n, true, affine, caesar);
+			this.check(n, true, caesar, affine);
+			this.check(n, true, affine, caesar, other);
+			this.check(n, true, caesar, affine, caesar);
+			this.check(n, true, caesar, caesar);
+			this.check(n, true, affine, other);
+		}
+	}
+
+	@Test
+	public void withVigenere() {
+		for(int n : DIVISORS){
+			Crypto affine = CryptoFactory.affine(3, 5, n);
+			Crypto caesar = CryptoFactory.caesar(7, n);
+			Crypto vigenere = CryptoFactory.vigenere(new int[]{1, 4, 9}, n);
+			Crypto other = CryptoFactory.vigenere(new int[]{2, 7}, n);
+			this.check(n, false, affine, caesar, vigenere);
+			this.check(n, false, vigenere, affine);
+			this.check(n, false, caesar, vigenere);
+			this.check(n, false, vigenere, other);
+		}
+	}
+
+	@Test
+	public void folds() {
+		Crypto chain = CryptoFactory.chain(CryptoFactory.affine(3, 5, 26), CryptoFactory.caesar(7, 26),
+				CryptoFactory.vigenere(new int[]{1, 2}, 26));
+		assertEquals(2, ((ChainCrypto) chain).stages.length);
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * Tests {@code ChineseRemainder} and {@code BigChineseRemainder} against a solution
+ * built with {@code BigInteger}, for odd and even moduli of up to 63 bits.
+ * @author Nathaniel
+ *
+ */
+
+public class ChineseRemainderTest {
+
+	private final Random random = new Random(42);
+
+	private static BigInteger expected(long[] moduli, long[] residues){
+		BigInteger m = BigInteger.ONE;
+		for(long modulus : moduli){
+			m = m.multiply(BigInteger.valueOf(modulus));
+		}
+		BigInteger x = BigInteger.ZERO;
+		for(int i = 0; i < moduli.length; ++i){
+			BigInteger mi = BigInteger.valueOf(moduli[i]);
+			BigInteger rest = m.divide(mi);
+			x = x.add(BigInteger.valueOf(residues[i]).multiply(rest).multiply(rest.modInverse(mi)));
+		}
+		return x.mod(m);
+	}
+
+	private long[] residues(long[] moduli){
+		long[] residues = new long[moduli.length];
+		for(int i = 0; i < moduli.length; ++i){
+			residues[i] = Math.floorMod(this.random.nextLong(), moduli[i]);
+		}
+		return residues;
+	}
+
+	private void check(long... moduli){
+		ChineseRemainder crt = new ChineseRemainder(moduli);
+		BigInteger[] bigModuli = new BigInteger[moduli.length];
+		for(int i = 0; i < moduli.length; ++i){
+			bigModuli[i] = BigInteger.valueOf(moduli[i]);
+		}
+		BigChineseRemainder bigCrt = new BigChineseRemainder(bigModuli);
+		assertEquals(bigCrt.getModulus(), crt.getModulus());
+		for(int round = 0; round < 64; ++round){
+			long[] residues = this.residues(moduli);
+			BigInteger x = expected(moduli, residues);
+			assertEquals(x, crt.solveBig(residues));
+			BigInteger[] bigResidues = new BigInteger[residues.length];
+			for(int i = 0; i < residues.length; ++i){
+				bigResidues[i] = BigInteger.valueOf(residues[i]);
+			}
+			assertEquals(x, bigCrt.solve(bigResidues));
+			if(crt.getModulus().bitLength() < 64){
+				assertEquals(x.longValue(), crt.solve(residues));
+			}
+		}
+	}
+
+	@Test
+	public void smallModuli() {
+		this.check(1);
+		this.check(26);
+		this.check(3, 5, 7);
+		this.check(8, 9, 25, 7, 11);
+		this.check(1, 2, 3);
+	}
+
+	@Test
+	public void largeModuli() {
+		this.check(1000000007L, 998244353L);
+		this.check((1L << 62) - 57, 1L << 40);
+		this.check(Long.MAX_VALUE, (1L << 62) - 57, 1000000007L, 1L << 20);
+		for(int i = 0; i < 8; ++i){
+			this.check(BigInteger.probablePrime(63, this.random).longValue(),
+					BigInteger.probablePrime(62, this.random).longValue(),
+					BigInteger.probablePrime(31, this.random).longValue());
+		}
+	}
+
+	@Test
+	public void rejectsBadModuli() {
+		assertThrows(RuntimeException.class, new Executable() {
+			@Override
+			public void execute() {
+				new ChineseRemainder(6, 9);
+			}
+		});
+		assertThrows(RuntimeException.class, new Executable() {
+			@Override
+			public void execute() {
+				new ChineseRemainder(5, 0);
+			}
+		});
+		final ChineseRemainder crt = new ChineseRemainder(Long.MAX_VALUE, (1L << 62) - 57);
+		assertThrows(RuntimeException.class, new Executable() {
+			@Override
+			public void execute() {
+				crt.solve(new long[]{1, 2});
+			}
+		});
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that {@code CryptoSolver.vigenere} finds the key of English text, with the
+ * letters only and with the whole of ASCII, among many candidate key lengths.
+ * @author Nathaniel
+ *
+ */
+
+public class CryptoSolverTest {
+
+	private static final String LETTERS = "thequickbrownfoxjumpsoverthelazydogwhilethesunsetsslowlybehindthedistantmountains"
+			+ "andthebirdssingtheirlastsongsoftheeveningbeforenightfallsacrossthequietvalleybelowwherethevillagers"
+			+ "preparetheirsuppersandchildrenplayinthestreets";
+
+	private static final String TEXT = "It was the best of times, it was the worst of times, it was the age of wisdom, "
+			+ "it was the age of foolishness, it was the epoch of belief, it was the epoch of incredulity. ";
+
+	@Test
+	public void letters() {
+		int[] key = {11, 4, 12, 14, 13};
+		String cipher = Encoding.DEFAULT.encrypt(LETTERS, CryptoFactory.vigenere(key, 26));
+		List<Solution> solutions = CryptoSolver.vigenere(cipher, Encoding.DEFAULT, 12, 3);
+		assertArrayEquals(key, solutions.get(0).getKey());
+		assertEquals(LETTERS, Encoding.DEFAULT.decrypt(cipher, solutions.get(0).getCrypto()));
+	}
+
+	@Test
+	public void ascii() {
+		StringBuilder message = new StringBuilder();
+		while(message.length() < 1 << 16){
+			message.append(TEXT);
+		}
+		int[] key = {10, 4, 24, 7, 1, 99, 3};
+		String cipher = Encoding.ASCII.encrypt(message.toString(), CryptoFactory.vigenere(key, 128));
+		List<Solution> solutions = CryptoSolver.vigenere(cipher, Encoding.ASCII, 32, 3);
+		assertArrayEquals(key, solutions.get(0).getKey());
+	}
+
+}
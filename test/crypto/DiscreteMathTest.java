@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code DiscreteMath.mod}, {@code gcd}, {@code gcdBinary}, {@code modInv} and {@code mulMod},
+ * in their {@code long} and {@code int} forms, against {@code BigInteger} for
+ * negative operands, zero, the {@code int} and {@code long} extremes and random
+ * values. Inputs outside the domain of a method (e.g. a divisor that is zero or
+ * negative) must throw.
+ * @author Nathaniel
+ *
+ */
+
+public class DiscreteMathTest {
+
+	private static final long[] EDGES = {
+		0, 1, -1, 2, -2, 3, 25, 26, -25, -26, 27, -27, 1000000007, -1000000007, -2000000000,
+		Short.MAX_VALUE, Short.MIN_VALUE,
+		Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1,
+		(long) Integer.MAX_VALUE + 1, (long) Integer.MIN_VALUE - 1,
+		1L << 32, 1L << 62, (1L << 62) - 57, -(1L << 62),
+		Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE - 1, Long.MIN_VALUE + 1, Long.MAX_VALUE - 24
+	};
+
+	private static final int RANDOM = 1 << 8;
+
+	private interface Call {
+		long run();
+	}
+
+	/**
+	 * @param expected The expected result, or null if the call must throw
+	 */
+	private static void expect(String name, BigInteger expected, Call call){
+		long actual;
+		try{
+			actual = call.run();
+		}
+		catch(RuntimeException e){
+			if(expected != null){
+				fail(name + ": expected " + expected + ", got " + e.getMessage());
+			}
+			return;
+		}
+		if(expected == null){
+			fail(name + ": expected an exception, got " + actual);
+		}
+		assertEquals(expected, BigInteger.valueOf(actual), name);
+	}
+
+	private static boolean isInt(long v){
+		return v == (int) v;
+	}
+
+	private static void check(final long a, final long b){
+		BigInteger bigA = BigInteger.valueOf(a);
+		BigInteger bigB = BigInteger.valueOf(b);
+		boolean positive = a > 0 && b > 0;
+
+		BigInteger mod = b > 0 ? bigA.mod(bigB) : null;
+		expect("mod(" + a + ", " + b + ")", mod, new Call() {
+			@Override
+			public long run() {
+				return DiscreteMath.mod(a, b);
+			}
+		});
+		BigInteger gcd = positive ? bigA.gcd(bigB) : null;
+		expect("gcd(" + a + ", " + b + ")", gcd, new Call() {
+			@Override
+			public long run() {
+				return DiscreteMath.gcd(a, b);
+			}
+		});
+		expect("gcdBinary(" + a + ", " + b + ")", gcd, new Call() {
+			@Override
+			public long run() {
+				return DiscreteMath.gcdBinary(a, b);
+			}
+		});
+		BigInteger inverse = positive && gcd.equals(BigInteger.ONE) ? bigA.modInverse(bigB) : null;
+		expect("modInv(" + a + ", " + b + ")", inverse, new Call() {
+			@Override
+			public long run() {
+				return DiscreteMath.modInv(a, b);
+			}
+		});
+		if(isInt(a) && isInt(b)){
+			final int x = (int) a;
+			final int y = (int) b;
+			expect("mod(int " + a + ", int " + b + ")", mod, new Call() {
+				@Override
+				public long run() {
+					return DiscreteMath.mod(x, y);
+				}
+			});
+			expect("gcd(int " + a + ", int " + b + ")", gcd, new Call() {
+				@Override
+				public long run() {
+					return DiscreteMath.gcd(x, y);
+				}
+			});
+		}
+	}
+
+	private static long[] randomValues(){
+		Random random = new Random(42);
+		long[] values = new long[3 * RANDOM];
+		for(int i = 0; i < RANDOM; ++i){
+			values[3 * i] = random.nextLong();
+			values[3 * i + 1] = random.nextInt();
+			values[3 * i + 2] = random.nextInt(1000) - 500;
+		}
+		return values;
+	}
+
+	@Test
+	public void edges() {
+		for(long a : EDGES){
+			for(long b : EDGES){
+				check(a, b);
+			}
+		}
+	}
+
+	@Test
+	public void randomAgainstEdges() {
+		for(long a : randomValues()){
+			for(long b : EDGES){
+				check(a, b);
+				check(b, a);
+			}
+		}
+	}
+
+	@Test
+	public void mulMod() {
+		Random random = new Random(42);
+		long[] divisors = new long[EDGES.length + RANDOM];
+		System.arraycopy(EDGES, 0, divisors, 0, EDGES.length);
+		for(int i = 0; i < RANDOM; ++i){
+			divisors[EDGES.length + i] = random.nextLong() >>> random.nextInt(32);
+		}
+		long[] values = randomValues();
+		for(final long n : divisors){
+			for(int i = 0; i < values.length; i += 2){
+				final long a = i < EDGES.length ? EDGES[i] : values[i];
+				final long b = values[i + 1];
+				BigInteger product = n > 0 ? BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(BigInteger.valueOf(n)) : null;
+				expect("mulMod(" + a + ", " + b + ", " + n + ")", product, new Call() {
+					@Override
+					public long run() {
+						return DiscreteMath.mulMod(a, b, n);
+					}
+				});
+				if(n > 0){
+					final long x = Math.floorMod(a, n);
+					final long y = n - 1 - Math.floorMod(b, n);
+					expect("mulMod(" + x + ", " + y + ", " + n + ")",
+							BigInteger.valueOf(x).multiply(BigInteger.valueOf(y)).mod(BigInteger.valueOf(n)), new Call() {
+						@Override
+						public long run() {
+							return DiscreteMath.mulMod(x, y, n);
+						}
+					});
+				}
+			}
+		}
+	}
+
+	@Test
+	public void randomPairs() {
+		long[] values = randomValues();
+		for(int i = 0; i + 1 < values.length; ++i){
+			check(values[i], values[i + 1]);
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code ExponentPlan} against {@code BigInteger.modPow} for exponents of
+ * every size, so that every window is used, and for odd moduli of up to 63 bits.
+ * @author Nathaniel
+ *
+ */
+
+public class ExponentPlanTest {
+
+	private final Random random = new Random(42);
+
+	@Test
+	public void everyWindow() {
+		assertEquals(1, ExponentPlan.window(8));
+		assertEquals(2, ExponentPlan.window(17));
+		assertEquals(3, ExponentPlan.window(62));
+	}
+
+	@Test
+	public void matchesModPow() {
+		long[] moduli = {3, 65537, 1000000007, (1L << 62) - 57, Long.MAX_VALUE, Long.MAX_VALUE - 2};
+		for(long n : moduli){
+			Montgomery montgomery = new Montgomery(n);
+			BigInteger bigN = BigInteger.valueOf(n);
+			for(int bits = 0; bits < 64; ++bits){
+				long expo = bits == 0 ? 0 : (this.random.nextLong() >>> (64 - bits)) | (1L << (bits - 1));
+				ExponentPlan plan = new ExponentPlan(montgomery, expo);
+				long[] bases = {0, 1, n - 1, Math.floorMod(this.random.nextLong(), n), Math.floorMod(this.random.nextLong(), n)};
+				for(long base : bases){
+					long expected = BigInteger.valueOf(base).modPow(BigInteger.valueOf(expo), bigN).longValue();
+					assertEquals(expected, plan.pow(base), base + "^" + expo + " mod " + n);
+				}
+			}
+		}
+	}
+
+}
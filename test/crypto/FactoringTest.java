@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code Factoring}: trial division and Pollard's rho on products of primes
+ * on both sides of the trial division bound, prime powers and primes.
+ * @author Nathaniel
+ *
+ */
+
+public class FactoringTest {
+
+	private final Random random = new Random(42);
+
+	private long prime(int bits){
+		return BigInteger.probablePrime(bits, this.random).longValue();
+	}
+
+	private static long product(long[] factors){
+		long n = 1;
+		for(long f : factors){
+			n *= f;
+		}
+		return n;
+	}
+
+	private static void checkFactorization(long n, long... expected){
+		long[] factors = Factoring.factorize(n);
+		assertArrayEquals(expected, factors, "factorize(" + n + ")");
+		for(long f : factors){
+			assertTrue(DiscreteMath.isPrime(f), f + " is not prime");
+		}
+		assertEquals(n, product(factors));
+	}
+
+	@Test
+	public void smallNumbers() {
+		checkFactorization(1);
+		checkFactorization(2, 2);
+		checkFactorization(12, 2, 2, 3);
+		checkFactorization(65536, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2);
+		checkFactorization(1000000007L, 1000000007L);
+		checkFactorization(Long.MAX_VALUE, 7, 7, 73, 127, 337, 92737, 649657);
+	}
+
+	@Test
+	public void semiprimes() {
+		for(int bits : new int[]{17, 24, 28, 31}){
+			for(int i = 0; i < 8; ++i){
+				long p = this.prime(bits);
+				long q = this.prime(bits);
+				long n = p * q;
+				long f = Factoring.factor(n);
+				assertTrue(f == p || f == q, "factor(" + n + ") = " + f);
+				checkFactorization(n, Math.min(p, q), Math.max(p, q));
+			}
+		}
+	}
+
+	@Test
+	public void primePowers() {
+		long p = this.prime(20);
+		checkFactorization(p * p * p, p, p, p);
+		long q = this.prime(31);
+		checkFactorization(q * q, q, q);
+		long r = this.prime(29);
+		checkFactorization(2 * 3 * r * r, 2, 3, r, r);
+	}
+
+	@Test
+	public void primes() {
+		for(int i = 0; i < 16; ++i){
+			long p = this.prime(62);
+			assertEquals(p, Factoring.factor(p));
+			checkFactorization(p, p);
+		}
+	}
+
+}
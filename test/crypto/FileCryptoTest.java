@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@code FileCrypto} against {@code Crypto.encrypt(int[])} on the bytes of the
+ * same file, with windows that do not divide the file and in parallel mode.
+ * @author Nathaniel
+ *
+ */
+
+public class FileCryptoTest {
+
+	@TempDir
+	Path dir;
+
+	private final Random random = new Random(42);
+
+	private static int[] toInts(byte[] bytes){
+		int[] result = new int[bytes.length];
+		for(int i = 0; i < bytes.length; ++i){
+			result[i] = bytes[i] & 0xFF;
+		}
+		return result;
+	}
+
+	private static byte[] toBytes(int[] ints){
+		byte[] result = new byte[ints.length];
+		for(int i = 0; i < ints.length; ++i){
+			result[i] = (byte) ints[i];
+		}
+		return result;
+	}
+
+	private void check(Crypto crypto, Crypto copy, int length, boolean parallel, int window) throws IOException {
+		byte[] message = new byte[length];
+		this.random.nextBytes(message);
+		Path plain = this.dir.resolve("plain");
+		Path cipher = this.dir.resolve("cipher");
+		Path restored = this.dir.resolve("restored");
+		Files.write(plain, message);
+		assertEquals(length, FileCrypto.transform(plain, cipher, crypto, false, parallel, window));
+		byte[] expected = toBytes(copy.encrypt(toInts(message)));
+		assertArrayEquals(expected, Files.readAllBytes(cipher));
+		assertEquals(length, FileCrypto.transform(cipher, restored, crypto, true, parallel, window));
+		assertArrayEquals(message, Files.readAllBytes(restored));
+	}
+
+	@Test
+	public void symbolCiphers() throws IOException {
+		Crypto affine = CryptoFactory.affine(7, 3, 256);
+		this.check(affine, affine, 0, false, FileCrypto.DEFAULT_WINDOW);
+		this.check(affine, affine, 100000, false, 4093);
+		Crypto caesar = CryptoFactory.caesar(200, 256);
+		this.check(caesar, caesar, 3 << 20, true, FileCrypto.DEFAULT_WINDOW);
+	}
+
+	@Test
+	public void vigenere() throws IOException {
+		Crypto vigenere = CryptoFactory.vigenere(new int[]{3, 141, 59, 26, 5}, 256);
+		this.check(vigenere, vigenere, 100000, false, 4093);
+		this.check(vigenere, vigenere, 3 << 20, true, 1 << 21);
+	}
+
+	@Test
+	public void oneTimePad() throws IOException {
+		int length = 3 << 20;
+		int[] pad = new int[length];
+		for(int i = 0; i < length; ++i){
+			pad[i] = this.random.nextInt(256);
+		}
+		// A pad is used only once, so each direction gets a new one
+		byte[] message = new byte[length];
+		this.random.nextBytes(message);
+		Path plain = this.dir.resolve("plain");
+		Path cipher = this.dir.resolve("cipher");
+		Path restored = this.dir.resolve("restored");
+		Files.write(plain, message);
+		FileCrypto.transform(plain, cipher, CryptoFactory.oneTimePad(pad, 256), false, true, 1 << 21);
+		byte[] expected = toBytes(CryptoFactory.oneTimePad(pad, 256).encrypt(toInts(message)));
+		assertArrayEquals(expected, Files.readAllBytes(cipher));
+		FileCrypto.transform(cipher, restored, CryptoFactory.oneTimePad(pad, 256), true, true, 4093);
+		assertArrayEquals(message, Files.readAllBytes(restored));
+	}
+
+	@Test
+	public void rejectsSameFile() throws IOException {
+		final Path plain = this.dir.resolve("plain");
+		byte[] message = {1, 2, 3};
+		Files.write(plain, message);
+		assertThrows(RuntimeException.class, new Executable() {
+			@Override
+			public void execute() throws IOException {
+				FileCrypto.encrypt(plain, plain, CryptoFactory.caesar(3, 256));
+			}
+		});
+		assertArrayEquals(message, Files.readAllBytes(plain));
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * Tests that a One Time Pad never encrypts with the same pad values twice when it is
+ * shared by many threads: many threads start a message with one
+ * {@code OneTimePadCrypto} at once, take ranges from one {@code OneTimePad} with
+ * {@code next} and {@code split} at once, and run one pad through
+ * {@code CryptoFactory.parallel}.
+ * @author Nathaniel
+ *
+ */
+
+public class OneTimePadTest {
+
+	private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+	private static final int ROUNDS = 200;
+	private static final int DIVISOR = 26;
+
+	private static ExecutorService executor;
+
+	private final Random random = new Random(42);
+
+	@BeforeAll
+	public static void start() {
+		executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@AfterAll
+	public static void stop() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	private static int[] random(int length, Random random){
+		int[] result = new int[length];
+		for(int i = 0; i < length; ++i){
+			result[i] = random.nextInt(DIVISOR);
+		}
+		return result;
+	}
+
+	/**
+	 * Run a task on every thread, all released at once
+	 * @return The result of each thread, or null where it threw
+	 */
+	private static <T> List<T> race(final Callable<T> task) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for(int t = 0; t < THREADS; ++t){
+			futures.add(executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					start.await();
+					return task.call();
+				}
+			}));
+		}
+		start.countDown();
+		List<T> results = new ArrayList<T>();
+		for(Future<T> future : futures){
+			try{
+				results.add(future.get());
+			}
+			catch(ExecutionException e){
+				if(!(e.getCause() instanceof RuntimeException)){
+					throw new RuntimeException(e.getCause());
+				}
+				results.add(null);
+			}
+		}
+		return results;
+	}
+
+	private static int succeeded(List<?> results){
+		int count = 0;
+		for(Object result : results){
+			if(result != null){
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Many threads start a message with the same pad; exactly one may succeed
+	 */
+	private void shareOnePad(final int length, final int threshold) throws InterruptedException {
+		final int[] message = random(length, this.random);
+		int[] pad = random(length, this.random);
+		int[] expected = new OneTimePadCrypto(pad, DIVISOR).encrypt(message);
+		for(int round = 0; round < ROUNDS; ++round){
+			Crypto otp = new OneTimePadCrypto(pad, DIVISOR);
+			final Crypto crypto = threshold > 0 ? CryptoFactory.parallel(otp, threshold) : otp;
+			List<int[]> results = race(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					return crypto.encrypt(message);
+				}
+			});
+			assertEquals(1, succeeded(results), "The number of threads that encrypted with the same pad");
+			for(int[] result : results){
+				if(result != null){
+					assertArrayEquals(expected, result, "The cipher differs from a single call");
+				}
+			}
+		}
+	}
+
+	@Test
+	public void sharedPad() throws InterruptedException {
+		this.shareOnePad(16, 0);
+		this.shareOnePad(1 << 14, 0);
+	}
+
+	@Test
+	public void sharedParallelPad() throws InterruptedException {
+		this.shareOnePad(1 << 14, 1024);
+	}
+
+	/**
+	 * Pieces at later positions must not bypass the claim of the pad
+	 */
+	@Test
+	public void laterPieces() {
+		final int length = 1 << 20;
+		final int[] message = random(length, this.random);
+		int[] pad = random(length, this.random);
+		final OneTimePadCrypto used = new OneTimePadCrypto(pad, DIVISOR);
+		int[] expected = used.encrypt(message);
+		assertThrows(RuntimeException.class, new Executable() {
+			@Override
+			public void execute() {
+				used.encrypt(message, 0, new int[4], 0, 4, 8);
+			}
+		});
+		final OneTimePadCrypto fresh = new OneTimePadCrypto(pad, DIVISOR);
+		assertThrows(RuntimeException.class, new Executable() {
+			@Override
+			public void execute() {
+				fresh.encrypt(message, 0, new int[4], 0, 4, 8);
+			}
+		});
+		final int[] out = new int[length];
+		assertThrows(RuntimeException.class, new Executable() {
+			@Override
+			public void execute() {
+				CryptoFactory.parallel(used, 1024).encrypt(message, 0, out, 0, length);
+			}
+		});
+		assertArrayEquals(new int[length], out, "A used pad wrote part of a message");
+		assertArrayEquals(expected, CryptoFactory.parallel(fresh, 1024).encrypt(message), "The parallel cipher differs from a single call");
+	}
+
+	/**
+	 * Ranges taken by many threads with next and split never overlap
+	 */
+	@Test
+	public void ranges() throws InterruptedException {
+		final int length = 7;
+		final int count = 3;
+		for(int round = 0; round < ROUNDS; ++round){
+			long total = (long) THREADS * length * (1 + count);
+			final OneTimePad pad = new OneTimePad(PadSource.of(new int[(int) total]), DIVISOR);
+			List<long[]> results = race(new Callable<long[]>() {
+				@Override
+				public long[] call() {
+					long[] offsets = new long[1 + count];
+					offsets[0] = ((OneTimePadCrypto) pad.next(length)).getOffset();
+					Crypto[] segments = pad.split(count, length);
+					for(int i = 0; i < count; ++i){
+						offsets[1 + i] = ((OneTimePadCrypto) segments[i]).getOffset();
+					}
+					return offsets;
+				}
+			});
+			boolean[] taken = new boolean[(int) total];
+			for(long[] offsets : results){
+				for(long offset : offsets){
+					for(int i = 0; i < length; ++i){
+						assertFalse(taken[(int) offset + i], "Pad value " + (offset + i) + " was handed out twice");
+						taken[(int) offset + i] = true;
+					}
+				}
+			}
+			assertEquals(0, pad.remaining(), "The number of pad values lost");
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that {@code CryptoFactory.parallel} keeps symbol ciphers as
+ * {@code SymbolCrypto}, gives the same result as the wrapped cipher, and is handed
+ * pieces large enough to split by {@code Encoding} and the streams.
+ * @author Nathaniel
+ *
+ */
+
+public class ParallelCryptoTest {
+
+	private final Random random = new Random(42);
+
+	/**
+	 * A Vigenere Cipher with the key {1, 2, 3} that remembers the longest piece it was given
+	 */
+	private static final class Recording implements ChunkedCrypto {
+
+		private int longest;
+
+		@Override
+		public int[] decrypt(int[] y) {
+			int[] result = new int[y.length];
+			this.decrypt(y, 0, result, 0, y.length, 0);
+			return result;
+		}
+
+		@Override
+		public int[] encrypt(int[] x) {
+			int[] result = new int[x.length];
+			this.encrypt(x, 0, result, 0, x.length, 0);
+			return result;
+		}
+
+		@Override
+		public void decrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+			this.shift(src, srcOff, dst, dstOff, len, position, -1);
+		}
+
+		@Override
+		public void encrypt(int[] src, int srcOff, int[] dst, int dstOff, int len, long position) {
+			this.shift(src, srcOff, dst, dstOff, len, position, 1);
+		}
+
+		private void shift(int[] src, int srcOff, int[] dst, int dstOff, int len, long position, int sign){
+			synchronized(this){
+				this.longest = Math.max(this.longest, len);
+			}
+			for(int i = 0; i < len; ++i){
+				dst[dstOff + i] = Math.floorMod(src[srcOff + i] + sign * (int) (1 + (position + i) % 3), 26);
+			}
+		}
+
+	}
+
+	private String message(int length){
+		char[] message = new char[length];
+		for(int i = 0; i < length; ++i){
+			message[i] = (char) ('a' + this.random.nextInt(26));
+		}
+		return new String(message);
+	}
+
+	@Test
+	public void keepsSymbolCiphers() {
+		Crypto caesar = CryptoFactory.caesar(3, 26);
+		Crypto affine = CryptoFactory.affine(5, 8, 65537);
+		assertTrue(CryptoFactory.parallel(caesar) instanceof SymbolCrypto);
+		assertTrue(CryptoFactory.parallel(affine, 1024) instanceof SymbolCrypto);
+		SymbolCrypto parallel = (SymbolCrypto) CryptoFactory.parallel(affine, 1024);
+		for(int x = 0; x < 65537; x += 97){
+			assertEquals(((SymbolCrypto) affine).encrypt(x), parallel.encrypt(x));
+		}
+		String message = this.message(1 << 17);
+		assertEquals(Encoding.DEFAULT.encrypt(message, caesar), Encoding.DEFAULT.encrypt(message, CryptoFactory.parallel(caesar, 1024)));
+	}
+
+	@Test
+	public void encodingHandsOverTheWholeMessage() {
+		int threshold = CryptoFactory.PARALLEL_THRESHOLD;
+		String message = this.message(8 * threshold);
+		Recording recording = new Recording();
+		String expected = Encoding.DEFAULT.encrypt(message, recording);
+		recording = new Recording();
+		String cipher = Encoding.DEFAULT.encrypt(message, CryptoFactory.parallel(recording));
+		assertEquals(expected, cipher);
+		assertEquals(threshold, recording.longest);
+		assertEquals(message, Encoding.DEFAULT.decrypt(cipher, CryptoFactory.parallel(new Recording())));
+	}
+
+	@Test
+	public void streamsHandOverLargePieces() throws IOException {
+		int threshold = CryptoFactory.PARALLEL_THRESHOLD;
+		String message = this.message(8 * threshold);
+		Recording recording = new Recording();
+		StringWriter out = new StringWriter();
+		try(CryptoWriter writer = new CryptoWriter(out, Encoding.DEFAULT, CryptoFactory.parallel(recording), false)){
+			writer.write(message);
+		}
+		assertEquals(Encoding.DEFAULT.encrypt(message, new Recording()), out.toString());
+		assertEquals(threshold, recording.longest);
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015 SUN XIMENG (Nathaniel). All rights reserved.
+ */
+
+package crypto;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The cipher kernels on the Vector API, with the preferred vector size of the
+ * platform (e.g. 8 lanes of int on AVX2). Integers outside [0, n) are rare, so each
+ * vector is computed for the common case and blended with the original values under
+ * a mask (Caesar, Vigenere), or handed to the scalar kernels if any of its lanes needs
+ * the general case (One Time Pad). The Affine Cipher needs a division, and stays
+ * scalar. This class must be compiled with
+ * {@code --add-modules jdk.incubator.vector} and is only loaded by
+ * {@code CipherKernels}.
+ * @author Nathaniel
+ *
+ */
+
+final class VectorKernelsImpl extends CipherKernels {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+
+	VectorKernelsImpl() {
+		if(LANES > MAX_LANES){
+			throw new UnsupportedOperationException("Unsupported vector shape " + SPECIES);
+		}
+	}
+
+	@Override
+	boolean isVectorized() {
+		return true;
+	}
+
+	// x - e (mod n) in the lanes where x is in [0, n); x in the others
+	private static IntVector shift(IntVector x, IntVector e, int n){
+		VectorMask<Integer> inRange = x.compare(VectorOperators.GE, 0).and(x.compare(VectorOperators.LT, n));
+		IntVector r = x.sub(e);
+		r = r.add(n, r.compare(VectorOperators.LT, 0));
+		return x.blend(r, inRange);
+	}
+
+	@Override
+	void shift(int[] src, int srcOff, int[] dst, int dstOff, int len, int e, int n) {
+		IntVector ev = IntVector.broadcast(SPECIES, e);
+		int bound = SPECIES.loopBound(len);
+		int i = 0;
+		for(; i < bound; i += LANES){
+			shift(IntVector.fromArray(SPECIES, src, srcOff + i), ev, n).intoArray(dst, dstOff + i);
+		}
+		SCALAR.shift(src, srcOff + i, dst, dstOff + i, len - i, e, n);
+	}
+
+	@Override
+	void shifts(int[] src, int srcOff, int[] dst, int dstOff, int len, int[] e, int period, int start, int n) {
+		int bound = SPECIES.loopBound(len);
+		int j = start;
+		int i = 0;
+		for(; i < bound; i += LANES){
+			// the key vector starting at j, rotated across the end of the key by the extension
+			IntVector ev = IntVector.fromArray(SPECIES, e, j);
+			shift(IntVector.fromArray(SPECIES, src, srcOff + i), ev, n).intoArray(dst, dstOff + i);
+			j += LANES;
+			while(j >= period){
+				j -= period;
+			}
+		}
+		SCALAR.shifts(src, srcOff + i, dst, dstOff + i, len - i, e, period, j, n);
+	}
+
+	@Override
+	void affine(int[] src, int srcOff, int[] dst, int dstOff, int len, int a, int b, int n) {
+		// there is no integer division on vectors, and the float quotient is not compiled
+		// to vector instructions on every platform, so the scalar kernel is faster
+		SCALAR.affine(src, srcOff, dst, dstOff, len, a, b, n);
+	}
+
+	@Override
+	void pad(int[] src, int srcOff, int[] pad, int padOff, int[] dst, int dstOff, int len, boolean decrypt, int n) {
+		int bound = SPECIES.loopBound(len);
+		int i = 0;
+		for(; i < bound; i += LANES){
+			IntVector x = IntVector.fromArray(SPECIES, src, srcOff + i);
+			IntVector p = IntVector.fromArray(SPECIES, pad, padOff + i);
+			VectorMask<Integer> inRange = x.compare(VectorOperators.GE, 0).and(x.compare(VectorOperators.LT, n))
+					.and(p.compare(VectorOperators.GE, 0)).and(p.compare(VectorOperators.LT, n));
+			if(!inRange.allTrue()){
+				SCALAR.pad(src, srcOff + i, pad, padOff + i, dst, dstOff + i, LANES, decrypt, n);
+				continue;
+			}
+			// x + p = x - (n - p) (mod n) without overflow; x - p needs no rewriting
+			IntVector r = decrypt ? x.sub(p) : x.sub(p.neg().add(n));
+			r = r.add(n, r.compare(VectorOperators.LT, 0));
+			r.intoArray(dst, dstOff + i);
+		}
+		SCALAR.pad(src, srcOff + i, pad, padOff + i, dst, dstOff + i, len - i, decrypt, n);
+	}
+
+}